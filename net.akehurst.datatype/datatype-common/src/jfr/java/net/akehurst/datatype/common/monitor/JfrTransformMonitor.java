@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common.monitor;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+
+import jdk.jfr.EventType;
+
+/**
+ * Emits a Flight Recorder event for each transformer operation, carrying its root class, object count and output size, and optionally one for
+ * each rule invocation that takes at least a threshold.
+ *
+ * <p>
+ * isEnabled is true only while a recording that enables these events is running, so the monitor costs next to nothing otherwise. Create instances
+ * with {@link TransformMonitor#jfrIfAvailable(long)}, which falls back to NOOP on JVMs without jdk.jfr.
+ *
+ */
+public class JfrTransformMonitor implements TransformMonitor {
+
+	private final long ruleThresholdNanos;
+	private final EventType operationType;
+	private final EventType ruleType;
+	// operations in progress on each thread
+	private final ThreadLocal<Deque<TransformOperationEvent>> inProgress;
+
+	public JfrTransformMonitor(final long ruleThresholdNanos) {
+		this.ruleThresholdNanos = ruleThresholdNanos;
+		this.operationType = EventType.getEventType(TransformOperationEvent.class);
+		this.ruleType = EventType.getEventType(TransformRuleEvent.class);
+		this.inProgress = ThreadLocal.withInitial(ArrayDeque::new);
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return this.operationType.isEnabled() || this.ruleThresholdNanos >= 0 && this.ruleType.isEnabled();
+	}
+
+	@Override
+	public void operationStarted(final String operation) {
+		final TransformOperationEvent event = new TransformOperationEvent();
+		event.operation = operation;
+		event.begin();
+		this.inProgress.get().push(event);
+	}
+
+	@Override
+	public void operationFinished(final String operation, final Class<?> rootClass, final long nanos) {
+		final Deque<TransformOperationEvent> stack = this.inProgress.get();
+		// recording may have started part way through the operation
+		if (!stack.isEmpty() && Objects.equals(operation, stack.peek().operation)) {
+			final TransformOperationEvent event = stack.pop();
+			event.end();
+			if (event.shouldCommit()) {
+				event.rootClass = rootClass;
+				event.commit();
+			}
+			if (!stack.isEmpty()) {
+				stack.peek().objectCount += event.objectCount;
+				stack.peek().outputSize += event.outputSize;
+			}
+		}
+	}
+
+	@Override
+	public void ruleInvoked(final Class<?> ruleClass, final Class<?> valueClass, final boolean left2Right, final long nanos) {
+		final TransformOperationEvent current = this.inProgress.get().peek();
+		if (null != current && null != valueClass) {
+			++current.objectCount;
+		}
+		if (this.ruleThresholdNanos >= 0 && nanos >= this.ruleThresholdNanos) {
+			final TransformRuleEvent event = new TransformRuleEvent();
+			if (event.shouldCommit()) {
+				event.ruleClass = ruleClass;
+				event.valueClass = valueClass;
+				event.leftToRight = left2Right;
+				event.ruleDuration = nanos;
+				event.commit();
+			}
+		}
+	}
+
+	@Override
+	public void outputWritten(final long chars) {
+		final TransformOperationEvent current = this.inProgress.get().peek();
+		if (null != current) {
+			current.outputSize += chars;
+		}
+	}
+
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common.monitor;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("net.akehurst.datatype.TransformOperation")
+@Label("Datatype Transform")
+@Category("Datatype")
+@Description("A top level transformer operation, e.g. toHJson or toDatatype")
+class TransformOperationEvent extends Event {
+
+	@Label("Operation")
+	String operation;
+
+	@Label("Root Class")
+	Class<?> rootClass;
+
+	@Label("Object Count")
+	@Description("Number of non-null values transformed")
+	long objectCount;
+
+	@Label("Output Size")
+	@Description("Number of characters written, when the operation writes its output")
+	long outputSize;
+
+}
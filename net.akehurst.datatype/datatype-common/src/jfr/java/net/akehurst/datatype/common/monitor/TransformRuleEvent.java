@@ -0,0 +1,44 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common.monitor;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("net.akehurst.datatype.TransformRule")
+@Label("Datatype Transform Rule")
+@Category("Datatype")
+@Description("A rule invocation that took at least the monitor's threshold, including nested invocations")
+class TransformRuleEvent extends Event {
+
+	@Label("Rule Class")
+	Class<?> ruleClass;
+
+	@Label("Value Class")
+	Class<?> valueClass;
+
+	@Label("Left To Right")
+	boolean leftToRight;
+
+	@Label("Rule Duration")
+	@Timespan(Timespan.NANOSECONDS)
+	long ruleDuration;
+
+}
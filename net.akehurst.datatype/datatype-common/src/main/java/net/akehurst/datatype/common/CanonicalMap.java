@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.akehurst.datatype.common.model.DatatypeIdentity;
+
+/**
+ * Maps the identity of a datatype to its one canonical instance. With WEAK strength an entry is dropped once nothing else refers to its instance,
+ * with STRONG strength entries stay until the map is cleared. Safe for use by several threads.
+ */
+public class CanonicalMap {
+
+	public enum Strength {
+		STRONG, WEAK
+	}
+
+	private final Strength strength;
+	private final ConcurrentMap<DatatypeIdentity, Object> map;
+	private final ReferenceQueue<Object> queue;
+
+	public CanonicalMap(final Strength strength) {
+		this.strength = strength;
+		this.map = new ConcurrentHashMap<>();
+		this.queue = new ReferenceQueue<>();
+	}
+
+	public Strength getStrength() {
+		return this.strength;
+	}
+
+	public Object get(final DatatypeIdentity identity) {
+		this.expunge();
+		final Object v = this.map.get(identity);
+		if (v instanceof WeakValue) {
+			return ((WeakValue) v).get();
+		} else {
+			return v;
+		}
+	}
+
+	public void put(final DatatypeIdentity identity, final Object instance) {
+		this.expunge();
+		if (Strength.WEAK == this.strength) {
+			this.map.put(identity, new WeakValue(identity, instance, this.queue));
+		} else {
+			this.map.put(identity, instance);
+		}
+	}
+
+	/**
+	 * atomically publish instance as the canonical instance for identity, unless another (live) instance already is
+	 *
+	 * @return the canonical instance, i.e. instance or the one that was published first
+	 */
+	public Object putIfAbsent(final DatatypeIdentity identity, final Object instance) {
+		this.expunge();
+		final Object[] winner = new Object[1];
+		this.map.compute(identity, (k, v) -> {
+			final Object existing = v instanceof WeakValue ? ((WeakValue) v).get() : v;
+			if (null != existing) {
+				winner[0] = existing;
+				return v;
+			} else {
+				winner[0] = instance;
+				return Strength.WEAK == this.strength ? new WeakValue(identity, instance, this.queue) : instance;
+			}
+		});
+		return winner[0];
+	}
+
+	public int size() {
+		this.expunge();
+		return this.map.size();
+	}
+
+	public void clear() {
+		this.map.clear();
+	}
+
+	private void expunge() {
+		Reference<?> ref = this.queue.poll();
+		while (null != ref) {
+			final WeakValue wv = (WeakValue) ref;
+			this.map.remove(wv.identity, wv);
+			ref = this.queue.poll();
+		}
+	}
+
+	private static final class WeakValue extends WeakReference<Object> {
+		final DatatypeIdentity identity;
+
+		WeakValue(final DatatypeIdentity identity, final Object referent, final ReferenceQueue<Object> queue) {
+			super(referent, queue);
+			this.identity = identity;
+		}
+	}
+}
@@ -19,7 +19,6 @@ package net.akehurst.datatype.common;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
 
 import net.akehurst.datatype.annotation.Query;
 
@@ -34,27 +33,44 @@ public abstract class DatatypeAbstract {
 
 	public DatatypeAbstract(final Object... identityValues) {
 		this.identityValues = identityValues;
-		this.hashCode_cache = Objects.hash(this.identityValues);
 	}
 
 	private final Object[] identityValues;
+	// created on first use, then shared by every call
+	private List<Object> identityValues_view;
 
 	@Query
 	protected List<Object> getIdentityValues() {
-		return Collections.unmodifiableList(Arrays.asList(this.identityValues));
+		List<Object> view = this.identityValues_view;
+		if (null == view) {
+			view = Collections.unmodifiableList(Arrays.asList(this.identityValues));
+			this.identityValues_view = view;
+		}
+		return view;
 	}
 
+	// computed on first use, zero until then (as for String)
 	int hashCode_cache;
 
 	@Override
 	public int hashCode() {
-		return this.hashCode_cache;
+		int h = this.hashCode_cache;
+		if (0 == h) {
+			h = Arrays.hashCode(this.identityValues);
+			this.hashCode_cache = h;
+		}
+		return h;
 	}
 
 	@Override
 	public boolean equals(final Object obj) {
-		if (this.getClass().isInstance(obj)) {
+		if (this == obj) {
+			return true;
+		} else if (this.getClass().isInstance(obj)) {
 			final DatatypeAbstract other = (DatatypeAbstract) obj;
+			if (0 != this.hashCode_cache && 0 != other.hashCode_cache && this.hashCode_cache != other.hashCode_cache) {
+				return false;
+			}
 			return Arrays.equals(this.identityValues, other.identityValues);
 		} else {
 			return false;
@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.akehurst.datatype.common;
+
+import java.util.Collections;
+import java.util.List;
+
+import net.akehurst.datatype.annotation.Query;
+
+/**
+ * A common base class for datatypes identified by a single long, e.g. a numeric id.
+ *
+ * <p>
+ * The identity value is held unboxed, and hashCode/equals do not allocate.
+ *
+ */
+public abstract class DatatypeAbstractLong {
+
+	private final long identity0;
+
+	public DatatypeAbstractLong(final long identity0) {
+		this.identity0 = identity0;
+	}
+
+	@Query
+	protected long getIdentity0() {
+		return this.identity0;
+	}
+
+	@Query
+	protected List<Object> getIdentityValues() {
+		return Collections.singletonList(this.identity0);
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(this.identity0);
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		} else if (this.getClass().isInstance(obj)) {
+			final DatatypeAbstractLong other = (DatatypeAbstractLong) obj;
+			return this.identity0 == other.identity0;
+		} else {
+			return false;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName() + "{" + this.identity0 + "}";
+	}
+
+}
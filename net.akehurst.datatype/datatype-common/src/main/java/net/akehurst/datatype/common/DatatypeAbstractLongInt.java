@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.akehurst.datatype.common;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.akehurst.datatype.annotation.Query;
+
+/**
+ * A common base class for datatypes identified by a long and an int, e.g. an id and a version.
+ *
+ * <p>
+ * The identity values are held unboxed, and hashCode/equals do not allocate.
+ *
+ */
+public abstract class DatatypeAbstractLongInt {
+
+	private final long identity0;
+	private final int identity1;
+
+	public DatatypeAbstractLongInt(final long identity0, final int identity1) {
+		this.identity0 = identity0;
+		this.identity1 = identity1;
+	}
+
+	@Query
+	protected long getIdentity0() {
+		return this.identity0;
+	}
+
+	@Query
+	protected int getIdentity1() {
+		return this.identity1;
+	}
+
+	@Query
+	protected List<Object> getIdentityValues() {
+		return Arrays.asList(this.identity0, this.identity1);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * Long.hashCode(this.identity0) + this.identity1;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		} else if (this.getClass().isInstance(obj)) {
+			final DatatypeAbstractLongInt other = (DatatypeAbstractLongInt) obj;
+			return this.identity0 == other.identity0 && this.identity1 == other.identity1;
+		} else {
+			return false;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName() + "{" + this.identity0 + "," + this.identity1 + "}";
+	}
+
+}
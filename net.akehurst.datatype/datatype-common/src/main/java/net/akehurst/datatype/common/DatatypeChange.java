@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A single difference between two datatype graphs, found by {@link DatatypeDiff}. The path is the list of property names, indexes (in the graph
+ * the value is found in) and Map keys leading to the changed value.
+ */
+public class DatatypeChange {
+
+	public enum Kind {
+		/** value present only in the new graph */
+		ADDED,
+		/** value present only in the old graph */
+		REMOVED,
+		/** value present in both, but different */
+		CHANGED
+	}
+
+	private final Kind kind;
+	private final List<String> path;
+	private final Object oldValue;
+	private final Object newValue;
+
+	public DatatypeChange(final Kind kind, final List<String> path, final Object oldValue, final Object newValue) {
+		this.kind = kind;
+		this.path = Collections.unmodifiableList(path);
+		this.oldValue = oldValue;
+		this.newValue = newValue;
+	}
+
+	public Kind getKind() {
+		return this.kind;
+	}
+
+	public List<String> getPath() {
+		return this.path;
+	}
+
+	public Object getOldValue() {
+		return this.oldValue;
+	}
+
+	public Object getNewValue() {
+		return this.newValue;
+	}
+
+	@Override
+	public String toString() {
+		return this.kind + " #/" + String.join("/", this.path) + " : " + this.oldValue + " -> " + this.newValue;
+	}
+}
@@ -0,0 +1,291 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.akehurst.datatype.api.DatatypeException;
+import net.akehurst.datatype.common.model.DatatypeInfo;
+import net.akehurst.datatype.common.model.DatatypeProperty;
+import net.akehurst.datatype.common.model.DatatypeRegistry;
+
+/**
+ * Deep copies a datatype graph object to object, without going through an intermediate HJson tree.
+ *
+ * <p>
+ * Each composite datatype is created with its identity constructor and its other properties set through their mutators, in the same way the
+ * transformer decodes them. Collections and Maps are copied, other values (strings, numbers, enums, ...) are shared. Reference properties are set
+ * once all composites are copied, so that they point to the copy of the referenced object; a referenced object outside the copied graph is shared.
+ * A reference that is an identity property is needed by the constructor, so the object it refers to is copied first.
+ * The graph is walked with an explicit work list, so its depth is not limited by the thread's stack size.
+ *
+ */
+public class DatatypeCopier {
+
+	private final DatatypeRegistry registry;
+	private final Map<Class<?>, Constructor<?>> constructors;
+
+	public DatatypeCopier(final DatatypeRegistry registry) {
+		this.registry = registry;
+		this.constructors = new ConcurrentHashMap<>();
+	}
+
+	public <T> T copy(final T root) {
+		return new Copy().run(root);
+	}
+
+	private Constructor<?> getIdentityConstructor(final Class<?> class_, final List<DatatypeProperty> identity) {
+		Constructor<?> cons = this.constructors.get(class_);
+		if (null == cons) {
+			final Class<?>[] parameterTypes = new Class<?>[identity.size()];
+			for (int i = 0; i < parameterTypes.length; ++i) {
+				parameterTypes[i] = identity.get(i).getType();
+			}
+			try {
+				cons = class_.getConstructor(parameterTypes);
+			} catch (final NoSuchMethodException e) {
+				throw new DatatypeException("No constructor for the identity properties " + identity + " of " + class_.getName(), e);
+			}
+			this.constructors.put(class_, cons);
+		}
+		return cons;
+	}
+
+	/**
+	 * state of a single copy operation
+	 */
+	private final class Copy {
+		// original -> copy, for every composite datatype copied so far
+		final Map<Object, Object> copies = new IdentityHashMap<>();
+		// (original, copy) pairs whose non-identity properties are still to be set
+		final Deque<Object[]> todo = new ArrayDeque<>();
+		// (copy, property, original value) for references, set once all composites exist
+		final List<Object[]> references = new ArrayList<>();
+		// originals under construction, to detect identity references that form a cycle
+		final Set<Object> constructing = Collections.newSetFromMap(new IdentityHashMap<>());
+		// the composites of the graph being copied, found only if an identity property is a reference
+		Set<Object> graph;
+		Object root;
+
+		<T> T run(final T root) {
+			this.root = root;
+			@SuppressWarnings("unchecked")
+			final T res = (T) this.copyValue(root);
+			while (!this.todo.isEmpty()) {
+				final Object[] task = this.todo.pop();
+				this.populate(task[0], task[1]);
+			}
+			for (final Object[] ref : this.references) {
+				final DatatypeProperty pi = (DatatypeProperty) ref[1];
+				pi.setValueFor(ref[0], this.remap(ref[2]));
+			}
+			return res;
+		}
+
+		private Object copyValue(final Object value) {
+			if (null == value) {
+				return null;
+			} else if (value instanceof Collection<?>) {
+				final Collection<Object> res = this.newCollection((Collection<?>) value);
+				for (final Object e : (Collection<?>) value) {
+					res.add(this.copyValue(e));
+				}
+				return res;
+			} else if (value instanceof Map<?, ?>) {
+				final Map<Object, Object> res = this.newMap((Map<?, ?>) value);
+				for (final Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+					res.put(this.copyValue(e.getKey()), this.copyValue(e.getValue()));
+				}
+				return res;
+			} else if (DatatypeCopier.this.registry.isDatatype(value.getClass())) {
+				return this.copyDatatype(value);
+			} else {
+				return value;
+			}
+		}
+
+		private Object copyDatatype(final Object original) {
+			final Object existing = this.copies.get(original);
+			if (null != existing) {
+				return existing;
+			}
+			final DatatypeInfo datatype = DatatypeCopier.this.registry.getDatatypeInfo(original.getClass());
+			final List<DatatypeProperty> identity = datatype.getPropertyIdentity();
+			final Object[] initargs = new Object[identity.size()];
+			for (int i = 0; i < initargs.length; ++i) {
+				final DatatypeProperty pi = identity.get(i);
+				final Object v = pi.getValueFrom(original);
+				initargs[i] = pi.isReference() ? this.copyReferenced(original, v) : this.copyValue(v);
+			}
+			final Constructor<?> cons = DatatypeCopier.this.getIdentityConstructor(original.getClass(), identity);
+			final Object copy;
+			try {
+				copy = cons.newInstance(initargs);
+			} catch (final Exception e) {
+				throw new DatatypeException("Unable to construct a copy of " + original.getClass().getName(), e);
+			} finally {
+				this.constructing.remove(original);
+			}
+			this.copies.put(original, copy);
+			this.todo.push(new Object[] { original, copy });
+			return copy;
+		}
+
+		/**
+		 * the value of a reference identity property of original: referenced composites of the graph are copied now, rather than remapped later
+		 */
+		private Object copyReferenced(final Object original, final Object value) {
+			if (null == value) {
+				return null;
+			} else if (value instanceof Collection<?>) {
+				final Collection<Object> res = this.newCollection((Collection<?>) value);
+				for (final Object e : (Collection<?>) value) {
+					res.add(this.copyReferenced(original, e));
+				}
+				return res;
+			} else if (value instanceof Map<?, ?>) {
+				final Map<Object, Object> res = this.newMap((Map<?, ?>) value);
+				for (final Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+					res.put(this.copyReferenced(original, e.getKey()), this.copyReferenced(original, e.getValue()));
+				}
+				return res;
+			} else if (this.copies.containsKey(value) || !this.inGraph(value)) {
+				return this.remap(value);
+			} else {
+				this.constructing.add(original);
+				if (this.constructing.contains(value)) {
+					throw new DatatypeException("Identity references form a cycle, cannot construct a copy of " + original.getClass().getName(), null);
+				}
+				return this.copyDatatype(value);
+			}
+		}
+
+		private boolean inGraph(final Object value) {
+			if (null == this.graph) {
+				this.graph = Collections.newSetFromMap(new IdentityHashMap<>());
+				final Deque<Object> walk = new ArrayDeque<>();
+				if (null != this.root) {
+					walk.push(this.root);
+				}
+				while (!walk.isEmpty()) {
+					final Object v = walk.pop();
+					if (v instanceof Collection<?>) {
+						this.pushAll(walk, (Collection<?>) v);
+					} else if (v instanceof Map<?, ?>) {
+						this.pushAll(walk, ((Map<?, ?>) v).keySet());
+						this.pushAll(walk, ((Map<?, ?>) v).values());
+					} else if (DatatypeCopier.this.registry.isDatatype(v.getClass()) && this.graph.add(v)) {
+						for (final DatatypeProperty pi : DatatypeCopier.this.registry.getDatatypeInfo(v.getClass()).getPropertyComposite()) {
+							final Object pv = pi.getValueFrom(v);
+							if (null != pv) {
+								walk.push(pv);
+							}
+						}
+					}
+				}
+			}
+			return this.graph.contains(value);
+		}
+
+		private void pushAll(final Deque<Object> walk, final Collection<?> values) {
+			for (final Object e : values) {
+				if (null != e) {
+					walk.push(e);
+				}
+			}
+		}
+
+		private void populate(final Object original, final Object copy) {
+			final DatatypeInfo datatype = DatatypeCopier.this.registry.getDatatypeInfo(original.getClass());
+			for (final DatatypeProperty pi : datatype.getProperty().values()) {
+				if (pi.isIdentity()) {
+					// set by the constructor
+				} else {
+					final Object value = pi.getValueFrom(original);
+					if (null == value) {
+						// leave the default
+					} else if (pi.isReference()) {
+						this.references.add(new Object[] { copy, pi, value });
+					} else {
+						pi.setValueFor(copy, this.copyValue(value));
+					}
+				}
+			}
+		}
+
+		private Object remap(final Object value) {
+			if (null == value) {
+				return null;
+			} else if (value instanceof Collection<?>) {
+				final Collection<Object> res = this.newCollection((Collection<?>) value);
+				for (final Object e : (Collection<?>) value) {
+					res.add(this.remap(e));
+				}
+				return res;
+			} else if (value instanceof Map<?, ?>) {
+				final Map<Object, Object> res = this.newMap((Map<?, ?>) value);
+				for (final Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+					res.put(this.remap(e.getKey()), this.remap(e.getValue()));
+				}
+				return res;
+			} else {
+				final Object copy = this.copies.get(value);
+				return null == copy ? value : copy;
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private Collection<Object> newCollection(final Collection<?> original) {
+			if (original instanceof SortedSet<?>) {
+				return new TreeSet<>(((SortedSet<Object>) original).comparator());
+			}
+			try {
+				return original.getClass().getDeclaredConstructor().newInstance();
+			} catch (final Exception e) {
+				// e.g. unmodifiable or Arrays.asList collections
+				return original instanceof Set<?> ? new LinkedHashSet<>() : new ArrayList<>();
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private Map<Object, Object> newMap(final Map<?, ?> original) {
+			if (original instanceof SortedMap<?, ?>) {
+				return new TreeMap<>(((SortedMap<Object, Object>) original).comparator());
+			}
+			try {
+				return original.getClass().getDeclaredConstructor().newInstance();
+			} catch (final Exception e) {
+				return new LinkedHashMap<>();
+			}
+		}
+	}
+}
@@ -0,0 +1,213 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import net.akehurst.datatype.common.DatatypeChange.Kind;
+import net.akehurst.datatype.common.model.DatatypeInfo;
+import net.akehurst.datatype.common.model.DatatypeProperty;
+import net.akehurst.datatype.common.model.DatatypeRegistry;
+
+/**
+ * Compares two datatype graphs, e.g. two loaded versions of a document, walking both in parallel through their composite properties.
+ *
+ * <p>
+ * Datatypes are matched by their identity values, including the elements of collections, so reordering or inserting elements does not make every
+ * following element appear changed. A datatype whose identity differs is reported as changed as a whole. References are compared by the identity of
+ * their target. Subtrees that are the same object in both graphs are skipped, so diffing mostly unchanged graphs is cheap.
+ *
+ */
+public class DatatypeDiff {
+
+	private final DatatypeRegistry registry;
+
+	public DatatypeDiff(final DatatypeRegistry registry) {
+		this.registry = registry;
+	}
+
+	/**
+	 * @return the changes that turn oldRoot into newRoot, in no particular order
+	 */
+	public List<DatatypeChange> diff(final Object oldRoot, final Object newRoot) {
+		final List<DatatypeChange> changes = new ArrayList<>();
+		final Deque<Pair> todo = new ArrayDeque<>();
+		todo.push(new Pair(new ArrayList<>(), oldRoot, newRoot));
+		while (!todo.isEmpty()) {
+			final Pair p = todo.pop();
+			final Object a = p.oldValue;
+			final Object b = p.newValue;
+			if (a == b) {
+				// unchanged subtree
+			} else if (null == a || null == b || a.getClass() != b.getClass()) {
+				changes.add(new DatatypeChange(Kind.CHANGED, p.path, a, b));
+			} else if (a instanceof List<?>) {
+				this.diffList(p.path, (List<?>) a, (List<?>) b, changes, todo);
+			} else if (a instanceof Collection<?>) {
+				this.diffCollection(p.path, (Collection<?>) a, (Collection<?>) b, changes, todo);
+			} else if (a instanceof Map<?, ?>) {
+				this.diffMap(p.path, (Map<?, ?>) a, (Map<?, ?>) b, changes, todo);
+			} else if (this.registry.isDatatype(a.getClass())) {
+				this.diffDatatype(p.path, a, b, changes, todo);
+			} else if (!a.equals(b)) {
+				changes.add(new DatatypeChange(Kind.CHANGED, p.path, a, b));
+			}
+		}
+		return changes;
+	}
+
+	private void diffDatatype(final List<String> path, final Object a, final Object b, final List<DatatypeChange> changes, final Deque<Pair> todo) {
+		if (!this.registry.getIdentity(a).equals(this.registry.getIdentity(b))) {
+			changes.add(new DatatypeChange(Kind.CHANGED, path, a, b));
+			return;
+		}
+		final DatatypeInfo datatype = this.registry.getDatatypeInfo(a.getClass());
+		for (final DatatypeProperty pi : datatype.getProperty().values()) {
+			if (pi.isIdentity()) {
+				// already compared
+			} else if (pi.isReference()) {
+				final Object va = pi.getValueFrom(a);
+				final Object vb = pi.getValueFrom(b);
+				if (!Objects.equals(this.targetOf(va), this.targetOf(vb))) {
+					changes.add(new DatatypeChange(Kind.CHANGED, DatatypeDiff.append(path, pi.getName()), va, vb));
+				}
+			} else {
+				todo.push(new Pair(DatatypeDiff.append(path, pi.getName()), pi.getValueFrom(a), pi.getValueFrom(b)));
+			}
+		}
+	}
+
+	private void diffList(final List<String> path, final List<?> a, final List<?> b, final List<DatatypeChange> changes, final Deque<Pair> todo) {
+		if (this.hasIdentityElements(a) && this.hasIdentityElements(b)) {
+			this.diffCollection(path, a, b, changes, todo);
+		} else {
+			// positional
+			final int common = Math.min(a.size(), b.size());
+			for (int i = 0; i < common; ++i) {
+				todo.push(new Pair(DatatypeDiff.append(path, Integer.toString(i)), a.get(i), b.get(i)));
+			}
+			for (int i = common; i < a.size(); ++i) {
+				changes.add(new DatatypeChange(Kind.REMOVED, DatatypeDiff.append(path, Integer.toString(i)), a.get(i), null));
+			}
+			for (int i = common; i < b.size(); ++i) {
+				changes.add(new DatatypeChange(Kind.ADDED, DatatypeDiff.append(path, Integer.toString(i)), null, b.get(i)));
+			}
+		}
+	}
+
+	private void diffCollection(final List<String> path, final Collection<?> a, final Collection<?> b, final List<DatatypeChange> changes,
+			final Deque<Pair> todo) {
+		// key each old element by its identity (or itself, for non datatypes), remembering its index
+		final Map<Object, Object[]> olds = new LinkedHashMap<>();
+		int i = 0;
+		for (final Object e : a) {
+			olds.put(this.keyOf(e), new Object[] { i, e });
+			++i;
+		}
+		i = 0;
+		for (final Object e : b) {
+			final Object[] old = olds.remove(this.keyOf(e));
+			if (null == old) {
+				changes.add(new DatatypeChange(Kind.ADDED, DatatypeDiff.append(path, Integer.toString(i)), null, e));
+			} else {
+				todo.push(new Pair(DatatypeDiff.append(path, Integer.toString(i)), old[1], e));
+			}
+			++i;
+		}
+		for (final Object[] old : olds.values()) {
+			changes.add(new DatatypeChange(Kind.REMOVED, DatatypeDiff.append(path, old[0].toString()), old[1], null));
+		}
+	}
+
+	private void diffMap(final List<String> path, final Map<?, ?> a, final Map<?, ?> b, final List<DatatypeChange> changes, final Deque<Pair> todo) {
+		final Set<Object> seen = new HashSet<>();
+		for (final Map.Entry<?, ?> e : b.entrySet()) {
+			final List<String> p = DatatypeDiff.append(path, String.valueOf(e.getKey()));
+			if (a.containsKey(e.getKey())) {
+				seen.add(e.getKey());
+				todo.push(new Pair(p, a.get(e.getKey()), e.getValue()));
+			} else {
+				changes.add(new DatatypeChange(Kind.ADDED, p, null, e.getValue()));
+			}
+		}
+		for (final Map.Entry<?, ?> e : a.entrySet()) {
+			if (!seen.contains(e.getKey())) {
+				changes.add(new DatatypeChange(Kind.REMOVED, DatatypeDiff.append(path, String.valueOf(e.getKey())), e.getValue(), null));
+			}
+		}
+	}
+
+	private boolean hasIdentityElements(final Collection<?> c) {
+		final Iterator<?> it = c.iterator();
+		if (!it.hasNext()) {
+			return true;
+		}
+		final Object first = it.next();
+		return null != first && this.registry.isDatatype(first.getClass()) && !this.registry.getDatatypeInfo(first.getClass()).getPropertyIdentity().isEmpty();
+	}
+
+	private Object keyOf(final Object element) {
+		if (null != element && this.registry.isDatatype(element.getClass())) {
+			return this.registry.getIdentity(element);
+		} else {
+			return element;
+		}
+	}
+
+	/**
+	 * @return the identity of a reference target, or of each target in a collection of references
+	 */
+	private Object targetOf(final Object value) {
+		if (value instanceof Collection<?>) {
+			final List<Object> res = new ArrayList<>();
+			for (final Object e : (Collection<?>) value) {
+				res.add(this.keyOf(e));
+			}
+			return res;
+		} else {
+			return this.keyOf(value);
+		}
+	}
+
+	private static List<String> append(final List<String> path, final String segment) {
+		final List<String> res = new ArrayList<>(path.size() + 1);
+		res.addAll(path);
+		res.add(segment);
+		return res;
+	}
+
+	private static final class Pair {
+		final List<String> path;
+		final Object oldValue;
+		final Object newValue;
+
+		Pair(final List<String> path, final Object oldValue, final Object newValue) {
+			this.path = path;
+			this.oldValue = oldValue;
+			this.newValue = newValue;
+		}
+	}
+}
@@ -0,0 +1,425 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import net.akehurst.datatype.api.DatatypeException;
+import net.akehurst.datatype.common.model.DatatypeIdentity;
+import net.akehurst.datatype.common.model.DatatypeProperty;
+import net.akehurst.datatype.common.model.DatatypeRegistry;
+
+/**
+ * An in-memory store of datatype objects, keyed by class plus identity values, with optional secondary indexes on other properties. Objects
+ * of a class without identity properties are keyed by the object itself, so several such objects can be stored but not looked up by get.
+ *
+ * <p>
+ * Adding a graph stores every composite datatype object reachable from its root. Reads are lock free and may run concurrently with a single writer;
+ * writes are serialised. When re-indexing, new entries are added before stale ones are removed, so a concurrent reader may briefly see an object
+ * under both its old and new keys, but never under neither. Null property values are not indexed.
+ *
+ * <p>
+ * Secondary indexes are hash maps keyed by property value, a datatype value being keyed by its identity. A range index additionally keeps a sorted
+ * map, ordered as datatype keys are by their identity comparator, so that findRange is supported.
+ *
+ */
+public class DatatypeRepository {
+
+	private final DatatypeRegistry registry;
+	private final Map<DatatypeIdentity, Object> byIdentity;
+	private final List<Index> indexes;
+
+	public DatatypeRepository(final DatatypeRegistry registry) {
+		this.registry = registry;
+		this.byIdentity = new ConcurrentHashMap<>();
+		this.indexes = new CopyOnWriteArrayList<>();
+	}
+
+	public DatatypeRegistry getRegistry() {
+		return this.registry;
+	}
+
+	/**
+	 * index instances of class_ (and its subclasses) by the value of the named property, for findBy; existing content is indexed immediately
+	 */
+	public synchronized void declareIndex(final Class<?> class_, final String propertyName) {
+		this.declareIndex(class_, propertyName, false);
+	}
+
+	/**
+	 * index instances of class_ (and its subclasses) by the value of the named property, for findBy and findRange; the property must be of a
+	 * primitive, Comparable or datatype type
+	 */
+	public synchronized void declareRangeIndex(final Class<?> class_, final String propertyName) {
+		this.declareIndex(class_, propertyName, true);
+	}
+
+	private void declareIndex(final Class<?> class_, final String propertyName, final boolean sorted) {
+		final Index existing = this.findIndex(class_, propertyName);
+		if (null != existing && (null != existing.sorted || !sorted)) {
+			return;
+		}
+		final DatatypeProperty prop = this.registry.getDatatypeInfo(class_).getProperty().get(propertyName);
+		if (null == prop) {
+			throw new DatatypeException("Cannot index " + class_.getName() + " by unknown property " + propertyName, null);
+		}
+		final Class<?> type = prop.getType();
+		if (sorted && !type.isPrimitive() && !Comparable.class.isAssignableFrom(type) && !this.registry.isDatatype(type)) {
+			throw new DatatypeException("Cannot range index " + class_.getName() + " by " + propertyName + ", its values are not ordered", null);
+		}
+		final Index index = new Index(class_, prop, sorted);
+		for (final Map.Entry<DatatypeIdentity, Object> e : this.byIdentity.entrySet()) {
+			index.add(e.getKey(), e.getValue());
+		}
+		this.indexes.add(index);
+		if (null != existing) {
+			this.indexes.remove(existing);
+		}
+	}
+
+	/**
+	 * add every composite datatype object reachable from root, replacing any object already stored with the same identity; objects contained by a
+	 * replaced object that are not also reachable from root are removed
+	 */
+	public synchronized void add(final Object root) {
+		final List<Object> added = this.composites(root);
+		final Set<Object> current = Collections.newSetFromMap(new IdentityHashMap<>());
+		final List<Object> replaced = new ArrayList<>();
+		for (final Object obj : added) {
+			current.add(obj);
+			final DatatypeIdentity id = this.identityOf(obj);
+			final Object old = this.byIdentity.put(id, obj);
+			if (null != old && old != obj) {
+				replaced.add(old);
+			}
+			for (final Index index : this.indexes) {
+				final Object key = index.keyOf(obj);
+				index.add(id, obj);
+				if (null != old && old != obj) {
+					final Object oldKey = index.keyOf(old);
+					if (!Objects.equals(key, oldKey)) {
+						index.remove(oldKey, id, old);
+					}
+				}
+			}
+		}
+		for (final Object obj : this.composites(replaced)) {
+			if (!current.contains(obj)) {
+				this.unindex(obj);
+			}
+		}
+	}
+
+	/**
+	 * remove the composite datatype objects reachable from root
+	 */
+	public synchronized void remove(final Object root) {
+		for (final Object obj : this.composites(root)) {
+			this.unindex(obj);
+		}
+	}
+
+	/**
+	 * apply change to datatype (e.g. via a transformer's updateDatatype) and re-index the objects it contains, before and after the change
+	 */
+	public synchronized <T> void update(final T datatype, final Consumer<T> change) {
+		final Map<Object, Snapshot> before = new IdentityHashMap<>();
+		for (final Object obj : this.composites(datatype)) {
+			before.put(obj, new Snapshot(obj));
+		}
+		change.accept(datatype);
+		final Set<Object> after = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (final Object obj : this.composites(datatype)) {
+			after.add(obj);
+			final Snapshot old = before.get(obj);
+			final DatatypeIdentity id = this.identityOf(obj);
+			this.byIdentity.put(id, obj);
+			if (null != old && !old.identity.equals(id)) {
+				this.byIdentity.remove(old.identity, obj);
+			}
+			for (int i = 0; i < this.indexes.size(); ++i) {
+				final Index index = this.indexes.get(i);
+				index.add(id, obj);
+				if (null != old && i < old.keys.length && (!old.identity.equals(id) || !Objects.equals(old.keys[i], index.keyOf(obj)))) {
+					index.remove(old.keys[i], old.identity, obj);
+				}
+			}
+		}
+		// objects no longer contained by datatype
+		for (final Map.Entry<Object, Snapshot> e : before.entrySet()) {
+			if (!after.contains(e.getKey())) {
+				this.byIdentity.remove(e.getValue().identity, e.getKey());
+				for (int i = 0; i < this.indexes.size() && i < e.getValue().keys.length; ++i) {
+					this.indexes.get(i).remove(e.getValue().keys[i], e.getValue().identity, e.getKey());
+				}
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> T get(final DatatypeIdentity identity) {
+		return (T) this.byIdentity.get(identity);
+	}
+
+	public <T> T get(final Class<T> class_, final Object... identityValues) {
+		return this.get(new DatatypeIdentity(class_, identityValues));
+	}
+
+	/**
+	 * @return the indexed instances of class_ whose property has the given value
+	 */
+	public <T> Collection<T> findBy(final Class<T> class_, final String propertyName, final Object value) {
+		final Map<DatatypeIdentity, Object> found = this.getIndex(class_, propertyName).byKey.get(this.hashKey(value));
+		return null == found ? Collections.emptyList() : this.select(class_, found.values());
+	}
+
+	/**
+	 * @return the indexed instances of class_ whose property value is in the range [from, to), in property value order
+	 */
+	public <T> Collection<T> findRange(final Class<T> class_, final String propertyName, final Object from, final Object to) {
+		final Index index = this.getIndex(class_, propertyName);
+		if (null == index.sorted) {
+			throw new DatatypeException("No range index declared for " + class_.getName() + "." + propertyName, null);
+		}
+		final NavigableMap<Object, Map<DatatypeIdentity, Object>> range = index.sorted.subMap(from, true, to, false);
+		final List<T> res = new ArrayList<>();
+		for (final Map<DatatypeIdentity, Object> m : range.values()) {
+			res.addAll(this.select(class_, m.values()));
+		}
+		return res;
+	}
+
+	public int size() {
+		return this.byIdentity.size();
+	}
+
+	public synchronized void clear() {
+		this.byIdentity.clear();
+		for (final Index index : this.indexes) {
+			index.clear();
+		}
+	}
+
+	private void unindex(final Object obj) {
+		final DatatypeIdentity id = this.identityOf(obj);
+		if (this.byIdentity.remove(id, obj)) {
+			for (final Index index : this.indexes) {
+				index.remove(index.keyOf(obj), id, obj);
+			}
+		}
+	}
+
+	private <T> List<T> select(final Class<T> class_, final Collection<Object> objs) {
+		final List<T> res = new ArrayList<>();
+		for (final Object o : objs) {
+			if (class_.isInstance(o)) {
+				res.add(class_.cast(o));
+			}
+		}
+		return res;
+	}
+
+	private Index findIndex(final Class<?> class_, final String propertyName) {
+		for (final Index index : this.indexes) {
+			if (index.class_ == class_ && index.property.getName().equals(propertyName)) {
+				return index;
+			}
+		}
+		return null;
+	}
+
+	private Index getIndex(final Class<?> class_, final String propertyName) {
+		final Index index = this.findIndex(class_, propertyName);
+		if (null == index) {
+			throw new DatatypeException("No index declared for " + class_.getName() + "." + propertyName, null);
+		}
+		return index;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Comparator<Object> createKeyComparator() {
+		return (a, b) -> {
+			if (a.getClass() == b.getClass() && this.registry.isDatatype(a.getClass())) {
+				return this.registry.getIdentityComparator((Class<Object>) a.getClass()).compare(a, b);
+			} else {
+				return ((Comparable) a).compareTo(b);
+			}
+		};
+	}
+
+	/**
+	 * @return the key of a property value in a hash index, the identity of a datatype as datatypes need not implement equals
+	 */
+	private Object hashKey(final Object value) {
+		return null != value && this.registry.isDatatype(value.getClass()) ? this.identityOf(value) : value;
+	}
+
+	private DatatypeIdentity identityOf(final Object obj) {
+		final DatatypeIdentity id = this.registry.getIdentity(obj);
+		if (0 == id.size()) {
+			// no identity properties, all instances would share one key
+			return new DatatypeIdentity(obj.getClass(), new ObjectKey(obj));
+		} else {
+			return id;
+		}
+	}
+
+	/**
+	 * @return the composite datatype objects reachable from root, including root
+	 */
+	private List<Object> composites(final Object root) {
+		final List<Object> res = new ArrayList<>();
+		final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+		final Deque<Object> todo = new ArrayDeque<>();
+		if (null != root) {
+			todo.push(root);
+		}
+		while (!todo.isEmpty()) {
+			final Object v = todo.pop();
+			if (!visited.add(v)) {
+				continue;
+			}
+			if (v instanceof Collection<?>) {
+				for (final Object e : (Collection<?>) v) {
+					if (null != e) {
+						todo.push(e);
+					}
+				}
+			} else if (v instanceof Map<?, ?>) {
+				for (final Object e : ((Map<?, ?>) v).values()) {
+					if (null != e) {
+						todo.push(e);
+					}
+				}
+			} else if (this.registry.isDatatype(v.getClass())) {
+				res.add(v);
+				for (final DatatypeProperty pi : this.registry.getDatatypeInfo(v.getClass()).getPropertyComposite()) {
+					final Object pv = pi.getValueFrom(v);
+					if (null != pv) {
+						todo.push(pv);
+					}
+				}
+			}
+		}
+		return res;
+	}
+
+	private final class Snapshot {
+		final DatatypeIdentity identity;
+		final Object[] keys;
+
+		Snapshot(final Object obj) {
+			this.identity = DatatypeRepository.this.identityOf(obj);
+			this.keys = new Object[DatatypeRepository.this.indexes.size()];
+			for (int i = 0; i < this.keys.length; ++i) {
+				this.keys[i] = DatatypeRepository.this.indexes.get(i).keyOf(obj);
+			}
+		}
+	}
+
+	// equal only to a key for the same object
+	private static final class ObjectKey {
+		final Object obj;
+
+		ObjectKey(final Object obj) {
+			this.obj = obj;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(this.obj);
+		}
+
+		@Override
+		public boolean equals(final Object other) {
+			return other instanceof ObjectKey && ((ObjectKey) other).obj == this.obj;
+		}
+
+		@Override
+		public String toString() {
+			return "@" + Integer.toHexString(this.hashCode());
+		}
+	}
+
+	private final class Index {
+		final Class<?> class_;
+		final DatatypeProperty property;
+		// hash key -> identity -> object
+		final Map<Object, Map<DatatypeIdentity, Object>> byKey;
+		// for a range index, index key -> the same identity -> object maps as byKey, otherwise null
+		final ConcurrentSkipListMap<Object, Map<DatatypeIdentity, Object>> sorted;
+
+		Index(final Class<?> class_, final DatatypeProperty property, final boolean sorted) {
+			this.class_ = class_;
+			this.property = property;
+			this.byKey = new ConcurrentHashMap<>();
+			this.sorted = sorted ? new ConcurrentSkipListMap<>(DatatypeRepository.this.createKeyComparator()) : null;
+		}
+
+		Object keyOf(final Object obj) {
+			return this.class_.isInstance(obj) ? this.property.getValueFrom(obj) : null;
+		}
+
+		void add(final DatatypeIdentity id, final Object obj) {
+			final Object key = this.keyOf(obj);
+			if (null != key) {
+				final Map<DatatypeIdentity, Object> m = this.byKey.computeIfAbsent(DatatypeRepository.this.hashKey(key), k -> new ConcurrentHashMap<>());
+				m.put(id, obj);
+				if (null != this.sorted) {
+					this.sorted.putIfAbsent(key, m);
+				}
+			}
+		}
+
+		void remove(final Object key, final DatatypeIdentity id, final Object obj) {
+			if (null != key) {
+				final Object hashKey = DatatypeRepository.this.hashKey(key);
+				final Map<DatatypeIdentity, Object> m = this.byKey.get(hashKey);
+				if (null != m) {
+					m.remove(id, obj);
+					if (m.isEmpty()) {
+						this.byKey.remove(hashKey, m);
+						if (null != this.sorted) {
+							this.sorted.remove(key, m);
+						}
+					}
+				}
+			}
+		}
+
+		void clear() {
+			this.byKey.clear();
+			if (null != this.sorted) {
+				this.sorted.clear();
+			}
+		}
+	}
+}
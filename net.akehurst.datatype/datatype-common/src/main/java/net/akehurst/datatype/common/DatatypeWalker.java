@@ -0,0 +1,325 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common;
+
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import net.akehurst.datatype.api.DatatypeException;
+import net.akehurst.datatype.common.model.DatatypePath;
+import net.akehurst.datatype.common.model.DatatypeProperty;
+import net.akehurst.datatype.common.model.DatatypeRegistry;
+
+/**
+ * Walks a datatype graph depth first, calling a visitor before and after the members of each (non-null) value.
+ *
+ * <p>
+ * Members are found from the registry's property tables, either the composite properties only, or also following references. The walk uses an
+ * explicit stack, so its depth is not limited by the thread's stack size, and visits each object once. In COMPOSITE mode an object that contains
+ * itself is reported as an error, as it usually means that a property should have been marked as a Reference; in FOLLOW_REFERENCES mode cycles
+ * are expected and simply not re-entered.
+ *
+ * <p>
+ * Optionally, the elements of collections at least as large as a threshold are walked in parallel on a ForkJoinPool; the visitor must then be
+ * thread safe.
+ *
+ */
+public class DatatypeWalker {
+
+	public enum Mode {
+		COMPOSITE, FOLLOW_REFERENCES
+	}
+
+	public enum WalkResult {
+		/** visit the members of this value */
+		CONTINUE,
+		/** do not visit the members of this value */
+		SKIP_CHILDREN,
+		/** stop the walk */
+		TERMINATE
+	}
+
+	/**
+	 * where the walk is; only valid during the visitor call it is passed to
+	 */
+	public interface Position {
+		/** @return the name of the member being visited, null for the root */
+		String getName();
+
+		int getDepth();
+
+		/** @return the names of the members leading from the root to the value being visited */
+		List<String> getPath();
+	}
+
+	@FunctionalInterface
+	public interface Visitor {
+		WalkResult pre(Position position, Object value);
+
+		default void post(final Position position, final Object value) {
+		}
+	}
+
+	private final Function<Object, Iterator<Map.Entry<String, Object>>> children;
+	private final boolean failOnCycle;
+	private ForkJoinPool pool;
+	private int parallelThreshold;
+
+	public DatatypeWalker(final DatatypeRegistry registry, final Mode mode) {
+		this(v -> DatatypeWalker.members(registry, mode, v), Mode.COMPOSITE == mode);
+	}
+
+	/**
+	 * @param children
+	 *            gives the named members of a value, or null if it has none
+	 */
+	public DatatypeWalker(final Function<Object, Iterator<Map.Entry<String, Object>>> children, final boolean failOnCycle) {
+		this.children = children;
+		this.failOnCycle = failOnCycle;
+		this.parallelThreshold = Integer.MAX_VALUE;
+	}
+
+	/**
+	 * walk the elements of collections with at least threshold elements in parallel on the given pool
+	 */
+	public DatatypeWalker parallel(final ForkJoinPool pool, final int threshold) {
+		this.pool = pool;
+		this.parallelThreshold = threshold;
+		return this;
+	}
+
+	/**
+	 * @return TERMINATE if the visitor ended the walk, otherwise CONTINUE
+	 */
+	public WalkResult walk(final Object root, final Visitor visitor) {
+		if (null == root) {
+			return WalkResult.CONTINUE;
+		}
+		final boolean parallel = null != this.pool;
+		final Set<Object> explored = parallel ? Collections.synchronizedSet(DatatypeWalker.identitySet()) : DatatypeWalker.identitySet();
+		final Walk walk = new Walk(visitor, new AtomicBoolean(), explored, Collections.emptyList(), DatatypeWalker.identitySet(),
+				Collections.singletonList(new AbstractMap.SimpleImmutableEntry<>(null, root)));
+		if (parallel) {
+			this.pool.invoke(walk);
+		} else {
+			walk.compute();
+		}
+		return walk.stop.get() ? WalkResult.TERMINATE : WalkResult.CONTINUE;
+	}
+
+	/**
+	 * @return the path from 'from' to the first value that matches isTarget, or null if it is not found
+	 */
+	public List<String> findPath(final Object from, final Predicate<Object> isTarget) {
+		final AtomicReference<List<String>> found = new AtomicReference<>();
+		this.walk(from, (pos, v) -> {
+			if (isTarget.test(v)) {
+				found.compareAndSet(null, pos.getPath());
+				return WalkResult.TERMINATE;
+			} else {
+				return WalkResult.CONTINUE;
+			}
+		});
+		return found.get();
+	}
+
+	private static Set<Object> identitySet() {
+		return Collections.newSetFromMap(new IdentityHashMap<>());
+	}
+
+	private static Iterator<Map.Entry<String, Object>> members(final DatatypeRegistry registry, final Mode mode, final Object value) {
+		if (value instanceof Collection<?>) {
+			return Util.indexed((Collection<?>) value);
+		} else if (value instanceof Map<?, ?>) {
+			final List<Map.Entry<String, Object>> members = new ArrayList<>();
+			int i = 0;
+			for (final Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+				members.add(new AbstractMap.SimpleImmutableEntry<>(DatatypePath.mapSegment(e.getKey(), i), e.getValue()));
+				++i;
+			}
+			return members.iterator();
+		} else if (registry.isDatatype(value.getClass())) {
+			final Collection<DatatypeProperty> props = Mode.COMPOSITE == mode ? registry.getDatatypeInfo(value.getClass()).getPropertyComposite()
+					: registry.getDatatypeInfo(value.getClass()).getProperty().values();
+			final List<Map.Entry<String, Object>> members = new ArrayList<>(props.size());
+			for (final DatatypeProperty pi : props) {
+				members.add(new AbstractMap.SimpleImmutableEntry<>(pi.getName(), pi.getValueFrom(value)));
+			}
+			return members.iterator();
+		} else {
+			return null;
+		}
+	}
+
+	private static final class Frame {
+		final String name;
+		final Object value;
+		Iterator<Map.Entry<String, Object>> children;
+
+		Frame(final String name, final Object value) {
+			this.name = name;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * walks a list of sibling values, below a common path
+	 */
+	private final class Walk extends RecursiveAction implements Position {
+		private static final long serialVersionUID = 1L;
+
+		final Visitor visitor;
+		final AtomicBoolean stop;
+		final Set<Object> explored;
+		final List<String> prefix;
+		final Set<Object> onPath;
+		final List<Map.Entry<String, Object>> items;
+		final Deque<Frame> stack;
+
+		Walk(final Visitor visitor, final AtomicBoolean stop, final Set<Object> explored, final List<String> prefix, final Set<Object> onPath,
+				final List<Map.Entry<String, Object>> items) {
+			this.visitor = visitor;
+			this.stop = stop;
+			this.explored = explored;
+			this.prefix = prefix;
+			this.onPath = onPath;
+			this.items = items;
+			this.stack = new ArrayDeque<>();
+		}
+
+		@Override
+		public String getName() {
+			return this.stack.isEmpty() ? null : this.stack.peek().name;
+		}
+
+		@Override
+		public int getDepth() {
+			return this.prefix.size() + this.stack.size() - 1;
+		}
+
+		@Override
+		public List<String> getPath() {
+			final List<String> path = new ArrayList<>(this.prefix);
+			final Iterator<Frame> it = this.stack.descendingIterator();
+			while (it.hasNext()) {
+				final Frame f = it.next();
+				if (null != f.name) {
+					path.add(f.name);
+				}
+			}
+			return path;
+		}
+
+		@Override
+		protected void compute() {
+			for (final Map.Entry<String, Object> item : this.items) {
+				if (this.stop.get()) {
+					return;
+				}
+				if (null != item.getValue() && this.claim(item.getKey(), item.getValue())) {
+					this.walkFrom(item.getKey(), item.getValue());
+				}
+			}
+		}
+
+		private void walkFrom(final String name, final Object value) {
+			this.enter(name, value);
+			while (!this.stack.isEmpty()) {
+				if (this.stop.get()) {
+					return;
+				}
+				final Frame frame = this.stack.peek();
+				if (frame.children.hasNext()) {
+					final Map.Entry<String, Object> child = frame.children.next();
+					final Object v = child.getValue();
+					if (null != v && this.claim(child.getKey(), v)) {
+						this.enter(child.getKey(), v);
+					}
+				} else {
+					this.visitor.post(this, frame.value);
+					this.stack.pop();
+					this.onPath.remove(frame.value);
+				}
+			}
+		}
+
+		/**
+		 * @return true if value is to be visited by this walk, i.e. it is not an ancestor and no walk has visited it before
+		 */
+		private boolean claim(final String name, final Object value) {
+			if (this.onPath.contains(value)) {
+				if (DatatypeWalker.this.failOnCycle) {
+					final List<String> path = this.getPath();
+					path.add(name);
+					throw new DatatypeException("Did you forget to mark something as a reference? Cycle found at #/" + String.join("/", path)
+							+ " to an object of type " + value.getClass().getName(), null);
+				}
+				return false;
+			} else {
+				// a single add, so that of several parallel tasks reaching the same value only one visits it
+				return this.explored.add(value);
+			}
+		}
+
+		private void enter(final String name, final Object value) {
+			final Frame frame = new Frame(name, value);
+			this.stack.push(frame);
+			final WalkResult r = this.visitor.pre(this, value);
+			if (WalkResult.TERMINATE == r) {
+				this.stop.set(true);
+				frame.children = Collections.emptyIterator();
+				return;
+			}
+			this.onPath.add(value);
+			final Iterator<Map.Entry<String, Object>> children = WalkResult.SKIP_CHILDREN == r ? null : DatatypeWalker.this.children.apply(value);
+			if (null != children && value instanceof Collection<?> && ((Collection<?>) value).size() >= DatatypeWalker.this.parallelThreshold) {
+				this.fork(children);
+				frame.children = Collections.emptyIterator();
+			} else {
+				frame.children = null == children ? Collections.emptyIterator() : children;
+			}
+		}
+
+		private void fork(final Iterator<Map.Entry<String, Object>> children) {
+			final List<Map.Entry<String, Object>> all = new ArrayList<>();
+			children.forEachRemaining(all::add);
+			final int chunk = Math.max(1, all.size() / (4 * DatatypeWalker.this.pool.getParallelism()));
+			final List<String> path = this.getPath();
+			final List<Walk> tasks = new ArrayList<>();
+			for (int i = 0; i < all.size(); i += chunk) {
+				final Set<Object> ancestors = DatatypeWalker.identitySet();
+				ancestors.addAll(this.onPath);
+				tasks.add(new Walk(this.visitor, this.stop, this.explored, path, ancestors, all.subList(i, Math.min(all.size(), i + chunk))));
+			}
+			RecursiveAction.invokeAll(tasks);
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a UTF-8 encoded file by memory mapping it, decoding directly from the mapped pages into the caller's buffer.
+ *
+ * <p>
+ * The file is mapped one chunk at a time, so files larger than a single mapping (2GB) can be read. A multi-byte character split over a chunk
+ * boundary is handled by starting the next chunk at the first byte not yet decoded. Mapped chunks are released by the garbage collector.
+ *
+ */
+public class MappedFileReader extends Reader {
+
+	public static final long DEFAULT_CHUNK_SIZE = 64L * 1024 * 1024;
+	// a chunk always starts on a character boundary, so one of at least this size always holds a complete character
+	private static final long MIN_CHUNK_SIZE = 4;
+
+	private final FileChannel channel;
+	private final long size;
+	private final long chunkSize;
+	private final CharsetDecoder decoder;
+	private MappedByteBuffer chunk;
+	private long chunkStart;
+	private boolean flushed;
+	// second half of a surrogate pair that did not fit in the caller's buffer
+	private int pending;
+
+	public MappedFileReader(final Path file) throws IOException {
+		this(file, MappedFileReader.DEFAULT_CHUNK_SIZE);
+	}
+
+	public MappedFileReader(final Path file, final long chunkSize) throws IOException {
+		this.channel = FileChannel.open(file, StandardOpenOption.READ);
+		this.size = this.channel.size();
+		this.chunkSize = Math.max(chunkSize, MappedFileReader.MIN_CHUNK_SIZE);
+		this.decoder = StandardCharsets.UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.pending = -1;
+	}
+
+	private boolean nextChunk() throws IOException {
+		final long pos = null == this.chunk ? 0 : this.chunkStart + this.chunk.position();
+		if (pos >= this.size && null != this.chunk) {
+			return false;
+		}
+		final long len = Math.min(this.chunkSize, this.size - pos);
+		this.chunk = this.channel.map(FileChannel.MapMode.READ_ONLY, pos, len);
+		this.chunkStart = pos;
+		return true;
+	}
+
+	private boolean isLastChunk() {
+		return this.chunkStart + this.chunk.limit() >= this.size;
+	}
+
+	private void decode(final CharBuffer out) throws IOException {
+		if (null == this.chunk) {
+			this.nextChunk();
+		}
+		while (out.position() == 0 && !this.flushed) {
+			final boolean last = this.isLastChunk();
+			final CoderResult r = this.decoder.decode(this.chunk, out, last);
+			if (r.isError()) {
+				r.throwException();
+			}
+			if (out.position() > 0 || r.isOverflow()) {
+				return;
+			}
+			if (last) {
+				this.decoder.flush(out);
+				this.flushed = true;
+			} else {
+				this.nextChunk();
+			}
+		}
+	}
+
+	@Override
+	public int read(final char[] cbuf, final int off, final int len) throws IOException {
+		if (!this.channel.isOpen()) {
+			throw new IOException("Reader is closed");
+		}
+		if (0 == len) {
+			return 0;
+		}
+		if (this.pending >= 0) {
+			cbuf[off] = (char) this.pending;
+			this.pending = -1;
+			return 1;
+		}
+		if (len < 2) {
+			// a supplementary character needs room for two chars
+			final CharBuffer tmp = CharBuffer.allocate(2);
+			this.decode(tmp);
+			if (0 == tmp.position()) {
+				return -1;
+			}
+			cbuf[off] = tmp.get(0);
+			if (tmp.position() > 1) {
+				this.pending = tmp.get(1);
+			}
+			return 1;
+		}
+		final CharBuffer out = CharBuffer.wrap(cbuf, off, len).slice();
+		this.decode(out);
+		return 0 == out.position() ? -1 : out.position();
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.chunk = null;
+		this.channel.close();
+	}
+
+}
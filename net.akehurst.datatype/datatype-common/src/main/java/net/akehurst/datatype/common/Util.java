@@ -16,12 +16,17 @@
 package net.akehurst.datatype.common;
 
 import java.lang.reflect.Method;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import net.akehurst.datatype.annotation.Datatype;
 import net.akehurst.datatype.annotation.Identity;
@@ -127,36 +132,48 @@ public class Util {
 	}
 
 	public static List<String> createPath(final Object from, final Object to) {
-		if (null == from) {
-			return null;
-		} else if (from == to) {
-			return new ArrayList<>();
-		} else {
-			if (from instanceof Collection<?>) {
-				final Collection<?> arr = (Collection<?>) from;
-				int i = 0;
-				for (final Object o : arr) {
-					final List<String> path = Util.createPath(o, to);
-					if (null != path) {
-						path.add(0, Integer.toString(i));
-						return path;
-					}
-					++i;
-				}
-				return null;
-			} else if (Util.isDatatype(from.getClass())) { // treat from as an Object
-				for (final Method m : Util.getNavigableMethods(from.getClass())) {
-					final Object value = Util.wrap(() -> m.invoke(from));
-					final List<String> path = Util.createPath(value, to);
-					if (null != path) {
-						path.add(0, Util.getMemberName(m));
-						return path;
-					}
+		return Util.findPath(from, v -> v == to, v -> {
+			if (v instanceof Collection<?>) {
+				return Util.indexed((Collection<?>) v);
+			} else if (Util.isDatatype(v.getClass())) { // treat v as an Object
+				final List<Map.Entry<String, Object>> members = new ArrayList<>();
+				for (final Method m : Util.getNavigableMethods(v.getClass())) {
+					members.add(new AbstractMap.SimpleImmutableEntry<>(Util.getMemberName(m), Util.wrap(() -> m.invoke(v))));
 				}
-				return null;
+				return members.iterator();
 			} else {
 				return null;
 			}
-		}
+		});
+	}
+
+	/**
+	 * @return the elements of the collection, each keyed by its index
+	 */
+	public static Iterator<Map.Entry<String, Object>> indexed(final Collection<?> collection) {
+		final Iterator<?> it = collection.iterator();
+		return new Iterator<Map.Entry<String, Object>>() {
+			int index = 0;
+
+			@Override
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+
+			@Override
+			public Map.Entry<String, Object> next() {
+				return new AbstractMap.SimpleImmutableEntry<>(Integer.toString(this.index++), it.next());
+			}
+		};
+	}
+
+	/**
+	 * Depth first search for the first value, reachable from 'from', that matches isTarget. children gives the named members of a value, or null if
+	 * it is a leaf. A value that contains itself is reported, as it usually means that a property should have been marked as a Reference.
+	 *
+	 * @return the names of the members leading from 'from' to the target, or null if it is not found
+	 */
+	public static List<String> findPath(final Object from, final Predicate<Object> isTarget, final Function<Object, Iterator<Map.Entry<String, Object>>> children) {
+		return new DatatypeWalker(children, true).findPath(from, isTarget);
 	}
 }
@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common.model;
+
+import java.util.Arrays;
+
+/**
+ * The class of a datatype together with the values of its identity properties, in identity index order. Usable as a key for datatype objects.
+ */
+public final class DatatypeIdentity {
+
+	private final Class<?> class_;
+	private final Object[] values;
+	private final int hashCode_cache;
+
+	public DatatypeIdentity(final Class<?> class_, final Object... values) {
+		this.class_ = class_;
+		this.values = values;
+		this.hashCode_cache = 31 * class_.hashCode() + Arrays.hashCode(values);
+	}
+
+	public Class<?> getJavaClass() {
+		return this.class_;
+	}
+
+	public int size() {
+		return this.values.length;
+	}
+
+	public Object getValue(final int index) {
+		return this.values[index];
+	}
+
+	@Override
+	public int hashCode() {
+		return this.hashCode_cache;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		} else if (obj instanceof DatatypeIdentity) {
+			final DatatypeIdentity other = (DatatypeIdentity) obj;
+			return this.hashCode_cache == other.hashCode_cache && this.class_ == other.class_ && Arrays.equals(this.values, other.values);
+		} else {
+			return false;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return this.class_.getSimpleName() + Arrays.toString(this.values);
+	}
+}
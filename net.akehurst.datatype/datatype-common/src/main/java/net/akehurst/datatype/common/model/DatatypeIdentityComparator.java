@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common.model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import net.akehurst.datatype.api.DatatypeException;
+
+/**
+ * Orders instances of a datatype by their identity values, in identity index order, so that datatypes can be held in sorted structures.
+ *
+ * <p>
+ * Primitive identity values are compared without boxing. Strings, other Comparable values and nested datatypes (by their own identity) are
+ * supported, with null ordered first. Obtain instances from {@link DatatypeRegistry#getIdentityComparator(Class)}, which caches them.
+ *
+ */
+public class DatatypeIdentityComparator implements Comparator<Object> {
+
+	private final DatatypeRegistry registry;
+	private final Class<?> class_;
+	private final List<Comparator<Object>> elements;
+
+	public DatatypeIdentityComparator(final DatatypeRegistry registry, final Class<?> class_) {
+		this.registry = registry;
+		this.class_ = class_;
+		final List<DatatypeProperty> identity = registry.getDatatypeInfo(class_).getPropertyIdentity();
+		this.elements = new ArrayList<>(identity.size());
+		for (final DatatypeProperty prop : identity) {
+			this.elements.add(this.createElementComparator(prop));
+		}
+	}
+
+	private Comparator<Object> createElementComparator(final DatatypeProperty prop) {
+		final Class<?> type = prop.getType();
+		if (long.class == type || int.class == type || short.class == type || byte.class == type || char.class == type) {
+			return (a, b) -> Long.compare(prop.getLongFrom(a), prop.getLongFrom(b));
+		} else if (double.class == type || float.class == type) {
+			return (a, b) -> Double.compare(prop.getDoubleFrom(a), prop.getDoubleFrom(b));
+		} else {
+			// boolean and all reference types, Boolean.valueOf does not allocate
+			return (a, b) -> this.compareValues(prop, prop.getValueFrom(a), prop.getValueFrom(b));
+		}
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private int compareValues(final DatatypeProperty prop, final Object va, final Object vb) {
+		if (va == vb) {
+			return 0;
+		} else if (null == va) {
+			return -1;
+		} else if (null == vb) {
+			return 1;
+		} else if (this.registry.isDatatype(va.getClass())) {
+			if (va.getClass() != vb.getClass()) {
+				return va.getClass().getName().compareTo(vb.getClass().getName());
+			} else {
+				return this.registry.getIdentityComparator((Class<Object>) va.getClass()).compare(va, vb);
+			}
+		} else if (va instanceof Comparable) {
+			return ((Comparable) va).compareTo(vb);
+		} else {
+			throw new DatatypeException("Identity property " + prop + " of " + this.class_.getName() + " is not comparable", null);
+		}
+	}
+
+	@Override
+	public int compare(final Object a, final Object b) {
+		if (a == b) {
+			return 0;
+		} else if (null == a) {
+			return -1;
+		} else if (null == b) {
+			return 1;
+		}
+		for (final Comparator<Object> e : this.elements) {
+			final int res = e.compare(a, b);
+			if (0 != res) {
+				return res;
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public String toString() {
+		return "DatatypeIdentityComparator{" + this.class_.getName() + "}";
+	}
+
+}
@@ -29,4 +29,9 @@ public interface DatatypeInfo {
 
 	Set<DatatypeProperty> getPropertyComposite();
 
+	/**
+	 * @return true if instances never change once constructed, so that instances with equal identity values are interchangeable
+	 */
+	boolean isImmutable();
+
 }
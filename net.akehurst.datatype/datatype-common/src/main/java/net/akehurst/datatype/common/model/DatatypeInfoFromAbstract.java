@@ -22,14 +22,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import net.akehurst.datatype.annotation.Immutable;
+
 public abstract class DatatypeInfoFromAbstract implements DatatypeInfo {
 
 	protected final DatatypeRegistry registry;
 	protected final Class<?> class_;
-	private Map<String, DatatypeProperty> property_cache;
-	private List<DatatypeProperty> propertyIdentity_cache;
-	private Set<DatatypeProperty> propertyReference_cache;
-	private Set<DatatypeProperty> propertyComposite_cache;
+	// caches are built completely before being published, so that concurrent readers never see a partially filled collection
+	private volatile Map<String, DatatypeProperty> property_cache;
+	private volatile List<DatatypeProperty> propertyIdentity_cache;
+	private volatile Set<DatatypeProperty> propertyReference_cache;
+	private volatile Set<DatatypeProperty> propertyComposite_cache;
 
 	public DatatypeInfoFromAbstract(final DatatypeRegistry registry, final Class<?> class_) {
 		this.registry = registry;
@@ -74,13 +77,16 @@ public abstract class DatatypeInfoFromAbstract implements DatatypeInfo {
 	@Override
 	public Map<String, DatatypeProperty> getProperty() {
 		if (null == this.property_cache) {
-			this.property_cache = new HashMap<>();
+			final long start = System.nanoTime();
+			final Map<String, DatatypeProperty> cache = new HashMap<>();
 			final Map<String, DatatypeProperty> p = this.getAllProperty();
 			for (final DatatypeProperty dp : p.values()) {
 				if (!dp.isIgnored()) {
-					this.property_cache.put(dp.getName(), dp);
+					cache.put(dp.getName(), dp);
 				}
 			}
+			this.property_cache = cache;
+			this.registry.metadataBuilt(System.nanoTime() - start);
 		}
 		return this.property_cache;
 	}
@@ -88,13 +94,13 @@ public abstract class DatatypeInfoFromAbstract implements DatatypeInfo {
 	@Override
 	public List<DatatypeProperty> getPropertyIdentity() {
 		if (null == this.propertyIdentity_cache) {
-			this.propertyIdentity_cache = new ArrayList<>();
+			final List<DatatypeProperty> cache = new ArrayList<>();
 			for (final DatatypeProperty pi : this.getProperty().values()) {
 				if (!pi.isIgnored() && pi.isIdentity()) {
-					this.propertyIdentity_cache.add(pi);
+					cache.add(pi);
 				}
 			}
-			this.propertyIdentity_cache.sort((a, b) -> {
+			cache.sort((a, b) -> {
 				if (a.getIdentityIndex() > b.getIdentityIndex()) {
 					return 1;
 				} else if (a.getIdentityIndex() < b.getIdentityIndex()) {
@@ -103,18 +109,20 @@ public abstract class DatatypeInfoFromAbstract implements DatatypeInfo {
 					return 0;
 				}
 			});
+			this.propertyIdentity_cache = cache;
 		}
 		return this.propertyIdentity_cache;
 	}
 
 	public Set<DatatypeProperty> getPropertyReference() {
 		if (null == this.propertyReference_cache) {
-			this.propertyReference_cache = new HashSet<>();
+			final Set<DatatypeProperty> cache = new HashSet<>();
 			for (final DatatypeProperty pi : this.getProperty().values()) {
 				if (!pi.isIgnored() && pi.isReference()) {
-					this.propertyReference_cache.add(pi);
+					cache.add(pi);
 				}
 			}
+			this.propertyReference_cache = cache;
 		}
 		return this.propertyReference_cache;
 	}
@@ -122,16 +130,22 @@ public abstract class DatatypeInfoFromAbstract implements DatatypeInfo {
 	@Override
 	public Set<DatatypeProperty> getPropertyComposite() {
 		if (null == this.propertyComposite_cache) {
-			this.propertyComposite_cache = new HashSet<>();
+			final Set<DatatypeProperty> cache = new HashSet<>();
 			for (final DatatypeProperty pi : this.getProperty().values()) {
 				if (!pi.isIgnored() && !pi.isReference()) {
-					this.propertyComposite_cache.add(pi);
+					cache.add(pi);
 				}
 			}
+			this.propertyComposite_cache = cache;
 		}
 		return this.propertyComposite_cache;
 	}
 
+	@Override
+	public boolean isImmutable() {
+		return null != this.class_ && null != this.class_.getAnnotation(Immutable.class);
+	}
+
 	@Override
 	public String toString() {
 		return this.class_.getName();
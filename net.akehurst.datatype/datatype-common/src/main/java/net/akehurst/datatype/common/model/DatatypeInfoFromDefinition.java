@@ -21,6 +21,7 @@ import java.util.Set;
 public class DatatypeInfoFromDefinition extends DatatypeInfoFromAbstract implements DatatypeInfo {
 
 	private final Set<DatatypeProperty> propertyInfo;
+	private boolean immutable;
 
 	public DatatypeInfoFromDefinition(final DatatypeRegistry registry, final Class<?> class_) {
 		super(registry, class_);
@@ -32,6 +33,15 @@ public class DatatypeInfoFromDefinition extends DatatypeInfoFromAbstract impleme
 		return this.propertyInfo;
 	}
 
+	@Override
+	public boolean isImmutable() {
+		return this.immutable || super.isImmutable();
+	}
+
+	public void setImmutable(final boolean value) {
+		this.immutable = value;
+	}
+
 	public void addPropertyInfo(final String pname, final DatatypeProperty propInfo) {
 		this.propertyInfo.add(propInfo);
 	}
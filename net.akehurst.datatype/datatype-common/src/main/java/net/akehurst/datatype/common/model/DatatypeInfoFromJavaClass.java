@@ -21,7 +21,7 @@ import java.util.Set;
 
 public class DatatypeInfoFromJavaClass extends DatatypeInfoFromAbstract implements DatatypeInfo {
 
-	private Set<DatatypeProperty> declaredProperty_cache;
+	private volatile Set<DatatypeProperty> declaredProperty_cache;
 
 	public DatatypeInfoFromJavaClass(final DatatypeRegistry registry, final Class<?> class_) {
 		super(registry, class_);
@@ -38,13 +38,14 @@ public class DatatypeInfoFromJavaClass extends DatatypeInfoFromAbstract implemen
 	@Override
 	public Set<DatatypeProperty> getDeclaredProperty() {
 		if (null == this.declaredProperty_cache) {
-			this.declaredProperty_cache = new HashSet<>();
+			final Set<DatatypeProperty> cache = new HashSet<>();
 			for (final Method m : this.class_.getDeclaredMethods()) {
 				if (this.registry.isProperty(m)) {
 					final DatatypeProperty dp = new DatatypeProperty(m);
-					this.declaredProperty_cache.add(dp);
+					cache.add(dp);
 				}
 			}
+			this.declaredProperty_cache = cache;
 		}
 		return this.declaredProperty_cache;
 	}
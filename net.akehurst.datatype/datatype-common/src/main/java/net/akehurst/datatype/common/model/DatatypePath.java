@@ -0,0 +1,473 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common.model;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.hjson.JsonArray;
+import org.hjson.JsonObject;
+import org.hjson.JsonValue;
+
+/**
+ * A compiled property path, e.g. "contacts/*&#47;person", that can be evaluated on a Java datatype graph or on its HJson form.
+ *
+ * <p>
+ * Segments are property names, collection indexes, Map keys (see {@link #mapSegment(Object, int)}), or "*" which matches every element of a
+ * collection (or every member of an object).
+ * The path is split and parsed once. Each property step caches the accessor it last used, keyed by class, so repeated evaluation over objects of
+ * the same classes does no lookups; when compiled against a root class, steps whose class is statically known are bound up front.
+ *
+ */
+public final class DatatypePath {
+
+	public static final String WILDCARD = "*";
+
+	private final DatatypeRegistry registry;
+	private final Step[] steps;
+	private final boolean hasWildcard;
+
+	private DatatypePath(final DatatypeRegistry registry, final Step[] steps) {
+		this.registry = registry;
+		this.steps = steps;
+		boolean wc = false;
+		for (final Step s : steps) {
+			wc |= s.isWildcard;
+		}
+		this.hasWildcard = wc;
+	}
+
+	/**
+	 * @return true if a Map key is named by its value in a path: a String, enum or whole/floating point number
+	 */
+	public static boolean isNamedKey(final Object key) {
+		return key instanceof String || key instanceof Enum<?> || key instanceof Integer || key instanceof Long || key instanceof Short || key instanceof Byte
+				|| key instanceof Double || key instanceof Float;
+	}
+
+	/**
+	 * @return the path segment for the Map entry with the given key at the given position in the Map's iteration order: the key's value for a named
+	 *         key (numbers written as in HJson), else the position
+	 */
+	public static String mapSegment(final Object key, final int position) {
+		if (key instanceof String) {
+			return (String) key;
+		} else if (key instanceof Enum<?>) {
+			return ((Enum<?>) key).name();
+		} else if (key instanceof Double || key instanceof Float) {
+			return JsonValue.valueOf(((Number) key).doubleValue()).toString();
+		} else if (DatatypePath.isNamedKey(key)) {
+			return key.toString();
+		} else {
+			return Integer.toString(position);
+		}
+	}
+
+	// as mapSegment, for a key in HJson form
+	private static String mapSegment(final JsonValue key, final int position) {
+		if (null == key) {
+			return Integer.toString(position);
+		} else if (key.isString()) {
+			return key.asString();
+		} else if (key.isNumber()) {
+			return key.toString();
+		} else if (key.isObject() && "Enum".equals(key.asObject().getString("$type", ""))) {
+			return key.asObject().getString("$value", "");
+		} else {
+			return Integer.toString(position);
+		}
+	}
+
+	public static DatatypePath compile(final DatatypeRegistry registry, final String path) {
+		return DatatypePath.compile(registry, path.isEmpty() ? Collections.emptyList() : Arrays.asList(path.split("/")));
+	}
+
+	public static DatatypePath compile(final DatatypeRegistry registry, final List<String> segments) {
+		final Step[] steps = new Step[segments.size()];
+		for (int i = 0; i < steps.length; ++i) {
+			steps[i] = new Step(segments.get(i));
+		}
+		return new DatatypePath(registry, steps);
+	}
+
+	/**
+	 * compile the path and bind its property steps to the accessors of the datatypes it passes through, starting from rootClass
+	 */
+	public static DatatypePath compile(final DatatypeRegistry registry, final Class<?> rootClass, final String path) {
+		final DatatypePath res = DatatypePath.compile(registry, path);
+		Type type = rootClass;
+		for (final Step s : res.steps) {
+			final Class<?> cls = DatatypePath.rawClass(type);
+			if (null == cls) {
+				break;
+			} else if (Collection.class.isAssignableFrom(cls) || Map.class.isAssignableFrom(cls)) {
+				type = DatatypePath.elementType(type);
+			} else if (registry.isDatatype(cls) && !s.isWildcard) {
+				final DatatypeProperty prop = registry.getDatatypeInfo(cls).getProperty().get(s.name);
+				if (null == prop) {
+					break;
+				}
+				s.binding = new Binding(cls, prop);
+				type = prop.getGenericType();
+			} else {
+				break;
+			}
+		}
+		return res;
+	}
+
+	public int size() {
+		return this.steps.length;
+	}
+
+	public boolean hasWildcard() {
+		return this.hasWildcard;
+	}
+
+	public List<String> getSegments() {
+		final List<String> res = new ArrayList<>();
+		for (final Step s : this.steps) {
+			res.add(s.name);
+		}
+		return res;
+	}
+
+	/**
+	 * @return the value at the end of the path, the first one if the path has wildcards, or null if there is none
+	 */
+	public Object get(final Object root) {
+		if (this.hasWildcard) {
+			final List<Object> all = this.getAll(root);
+			return all.isEmpty() ? null : all.get(0);
+		}
+		Object v = root;
+		for (final Step s : this.steps) {
+			if (null == v) {
+				return null;
+			}
+			v = this.step(s, v);
+		}
+		return v;
+	}
+
+	/**
+	 * @return every non-null value matched by the path
+	 */
+	public List<Object> getAll(final Object root) {
+		List<Object> current = new ArrayList<>();
+		if (null != root) {
+			current.add(root);
+		}
+		for (final Step s : this.steps) {
+			final List<Object> next = new ArrayList<>();
+			for (final Object v : current) {
+				if (s.isWildcard) {
+					this.addChildren(v, next);
+				} else {
+					final Object c = this.step(s, v);
+					if (null != c) {
+						next.add(c);
+					}
+				}
+			}
+			current = next;
+		}
+		return current;
+	}
+
+	/**
+	 * @return the HJson value at the end of the path, the first one if the path has wildcards, or null if there is none
+	 */
+	public JsonValue get(final JsonValue root) {
+		if (this.hasWildcard) {
+			final List<JsonValue> all = this.getAll(root);
+			return all.isEmpty() ? null : all.get(0);
+		}
+		JsonValue v = root;
+		for (final Step s : this.steps) {
+			if (null == v) {
+				return null;
+			}
+			v = this.step(s, v);
+		}
+		return v;
+	}
+
+	/**
+	 * @return every non-null HJson value matched by the path, collections being navigated through their $elements
+	 */
+	public List<JsonValue> getAll(final JsonValue root) {
+		List<JsonValue> current = new ArrayList<>();
+		if (null != root) {
+			current.add(root);
+		}
+		for (final Step s : this.steps) {
+			final List<JsonValue> next = new ArrayList<>();
+			for (final JsonValue v : current) {
+				if (s.isWildcard) {
+					this.addChildren(v, next);
+				} else {
+					final JsonValue c = this.step(s, v);
+					if (null != c) {
+						next.add(c);
+					}
+				}
+			}
+			current = next;
+		}
+		return current;
+	}
+
+	private Object step(final Step s, final Object v) {
+		if (v instanceof List<?>) {
+			final List<?> l = (List<?>) v;
+			return s.index >= 0 && s.index < l.size() ? l.get(s.index) : null;
+		} else if (v instanceof Collection<?>) {
+			if (s.index < 0) {
+				return null;
+			}
+			final Iterator<?> it = ((Collection<?>) v).iterator();
+			for (int i = 0; it.hasNext(); ++i) {
+				final Object e = it.next();
+				if (i == s.index) {
+					return e;
+				}
+			}
+			return null;
+		} else if (v instanceof Map<?, ?>) {
+			final Map<?, ?> m = (Map<?, ?>) v;
+			if (m.isEmpty()) {
+				return null;
+			}
+			// only look up by the segment when keys are Strings, e.g. a TreeMap of other keys would throw ClassCastException
+			final Object res = m.keySet().iterator().next() instanceof String ? m.get(s.name) : null;
+			if (null == res) {
+				int i = 0;
+				for (final Map.Entry<?, ?> e : m.entrySet()) {
+					if (s.name.equals(DatatypePath.mapSegment(e.getKey(), i))) {
+						return e.getValue();
+					}
+					++i;
+				}
+			}
+			return res;
+		} else {
+			final Binding b = s.binding;
+			if (null != b && b.class_ == v.getClass()) {
+				return b.property.getValueFrom(v);
+			} else if (this.registry.isDatatype(v.getClass())) {
+				final DatatypeProperty prop = this.registry.getDatatypeInfo(v.getClass()).getProperty().get(s.name);
+				if (null == prop) {
+					return null;
+				}
+				s.binding = new Binding(v.getClass(), prop);
+				return prop.getValueFrom(v);
+			} else {
+				return null;
+			}
+		}
+	}
+
+	private void addChildren(final Object v, final List<Object> into) {
+		if (v instanceof Collection<?>) {
+			for (final Object e : (Collection<?>) v) {
+				if (null != e) {
+					into.add(e);
+				}
+			}
+		} else if (v instanceof Map<?, ?>) {
+			for (final Object e : ((Map<?, ?>) v).values()) {
+				if (null != e) {
+					into.add(e);
+				}
+			}
+		} else if (this.registry.isDatatype(v.getClass())) {
+			for (final DatatypeProperty prop : this.registry.getDatatypeInfo(v.getClass()).getPropertyComposite()) {
+				final Object e = prop.getValueFrom(v);
+				if (null != e) {
+					into.add(e);
+				}
+			}
+		}
+	}
+
+	private JsonValue step(final Step s, final JsonValue v) {
+		final JsonValue c = DatatypePath.contents(v);
+		if (null == c) {
+			return null;
+		} else if (c.isArray()) {
+			final JsonArray arr = c.asArray();
+			if (DatatypePath.isMapEntries(v)) {
+				for (int i = 0; i < arr.size(); ++i) {
+					final JsonObject e = arr.get(i).asObject();
+					if (s.name.equals(DatatypePath.mapSegment(e.get("key"), i))) {
+						return e.get("value");
+					}
+				}
+				return null;
+			} else if (DatatypePath.isMapKeys(v)) {
+				final JsonArray keys = v.asObject().get("$keys").asArray();
+				for (int i = 0; i < arr.size() && i < keys.size(); ++i) {
+					if (s.name.equals(DatatypePath.mapSegment(keys.get(i), i))) {
+						return arr.get(i);
+					}
+				}
+				return null;
+			} else {
+				return s.index >= 0 && s.index < arr.size() ? arr.get(s.index) : null;
+			}
+		} else if (c.isObject()) {
+			return c.asObject().get(s.name);
+		} else {
+			return null;
+		}
+	}
+
+	private void addChildren(final JsonValue v, final List<JsonValue> into) {
+		final JsonValue c = DatatypePath.contents(v);
+		if (null == c) {
+			// nothing
+		} else if (c.isArray()) {
+			final boolean entries = DatatypePath.isMapEntries(v);
+			for (final JsonValue e : c.asArray()) {
+				into.add(entries ? e.asObject().get("value") : e);
+			}
+		} else if (c.isObject()) {
+			for (final JsonObject.Member m : c.asObject()) {
+				if (!m.getName().startsWith("$")) {
+					into.add(m.getValue());
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the value to navigate into, the $elements of a collection (or $values of a compact Map), or null for values that cannot be navigated
+	 *         (enums, references)
+	 */
+	private static JsonValue contents(final JsonValue v) {
+		if (v.isObject()) {
+			final JsonValue type = v.asObject().get("$type");
+			if (null == type) {
+				return v;
+			}
+			switch (type.asString()) {
+				case "List":
+				case "Set":
+					return v.asObject().get("$elements");
+				case "Map":
+					if (null != v.asObject().get("$elements")) {
+						return v.asObject().get("$elements");
+					} else if (null != v.asObject().get("$values")) {
+						return v.asObject().get("$values");
+					} else {
+						return v; // named keys are members of the object
+					}
+				default:
+					return null;
+			}
+		} else if (v.isArray()) {
+			return v;
+		} else {
+			return null;
+		}
+	}
+
+	// a Map as an array of key/value entries
+	private static boolean isMapEntries(final JsonValue v) {
+		if (v.isObject()) {
+			final JsonValue type = v.asObject().get("$type");
+			return null != type && "Map".equals(type.asString()) && null != v.asObject().get("$elements");
+		}
+		return false;
+	}
+
+	// a Map as parallel arrays of keys and values
+	private static boolean isMapKeys(final JsonValue v) {
+		if (v.isObject()) {
+			final JsonValue type = v.asObject().get("$type");
+			return null != type && "Map".equals(type.asString()) && null != v.asObject().get("$keys");
+		}
+		return false;
+	}
+
+	private static Class<?> rawClass(final Type type) {
+		if (type instanceof Class<?>) {
+			return (Class<?>) type;
+		} else if (type instanceof ParameterizedType) {
+			return DatatypePath.rawClass(((ParameterizedType) type).getRawType());
+		} else {
+			return null;
+		}
+	}
+
+	private static Type elementType(final Type type) {
+		if (type instanceof ParameterizedType) {
+			final Type[] args = ((ParameterizedType) type).getActualTypeArguments();
+			return args[args.length - 1];
+		} else {
+			return null;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.join("/", this.getSegments());
+	}
+
+	private static final class Step {
+		final String name;
+		final int index;
+		final boolean isWildcard;
+		// inline cache of the accessor last used by this step
+		volatile Binding binding;
+
+		Step(final String name) {
+			this.name = name;
+			this.isWildcard = DatatypePath.WILDCARD.equals(name);
+			this.index = Step.parseIndex(name);
+		}
+
+		private static int parseIndex(final String s) {
+			if (s.isEmpty() || s.length() > 9) {
+				return -1;
+			}
+			for (int i = 0; i < s.length(); ++i) {
+				if (!Character.isDigit(s.charAt(i))) {
+					return -1;
+				}
+			}
+			return Integer.parseInt(s);
+		}
+	}
+
+	private static final class Binding {
+		final Class<?> class_;
+		final DatatypeProperty property;
+
+		Binding(final Class<?> class_, final DatatypeProperty property) {
+			this.class_ = class_;
+			this.property = property;
+		}
+	}
+}
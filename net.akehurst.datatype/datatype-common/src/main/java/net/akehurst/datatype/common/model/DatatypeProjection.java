@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A set of property paths, e.g. "contacts/*&#47;person/lastname", selecting the parts of a datatype graph that are of interest.
+ *
+ * <p>
+ * Each path is a '/' separated list of property names, with collection elements identified by their index. The segment "*" matches any single
+ * segment. A path is included if it leads to, or lies below, one of the projected paths.
+ *
+ */
+public class DatatypeProjection {
+
+	public static final String WILDCARD = "*";
+
+	private final List<String[]> paths;
+
+	public DatatypeProjection(final Collection<String> paths) {
+		this.paths = new ArrayList<>();
+		for (final String p : paths) {
+			this.paths.add(p.isEmpty() ? new String[0] : p.split("/"));
+		}
+	}
+
+	public static DatatypeProjection of(final String... paths) {
+		return new DatatypeProjection(Arrays.asList(paths));
+	}
+
+	/**
+	 * @return true if the given path is an ancestor of, equal to, or a descendant of one of the projected paths
+	 */
+	public boolean includes(final List<String> path) {
+		for (final String[] p : this.paths) {
+			if (this.matches(p, path)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean matches(final String[] projected, final List<String> path) {
+		final int len = Math.min(projected.length, path.size());
+		for (int i = 0; i < len; ++i) {
+			final String seg = projected[i];
+			if (!DatatypeProjection.WILDCARD.equals(seg) && !seg.equals(path.get(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		final List<String> res = new ArrayList<>();
+		for (final String[] p : this.paths) {
+			res.add(String.join("/", p));
+		}
+		return res.toString();
+	}
+}
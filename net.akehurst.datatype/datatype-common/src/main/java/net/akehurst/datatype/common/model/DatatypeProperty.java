@@ -15,7 +15,11 @@
  */
 package net.akehurst.datatype.common.model;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Type;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -35,6 +39,11 @@ public class DatatypeProperty {
 	private final boolean isReference;
 	private final int identityIndex;
 	private final boolean isDefault;
+	// accessor adapted to return a widened primitive, and mutator to take one, created on first use
+	private volatile MethodHandle longGetter_cache;
+	private volatile MethodHandle doubleGetter_cache;
+	private volatile MethodHandle longSetter_cache;
+	private volatile MethodHandle doubleSetter_cache;
 
 	public DatatypeProperty(final Method accessor, final String name, final boolean ignore, final boolean isIdentity, final int identityIndex, final boolean isReference) {
 		this.accessor = accessor;
@@ -88,6 +97,10 @@ public class DatatypeProperty {
 		return this.accessor.getReturnType();
 	}
 
+	public Type getGenericType() {
+		return this.accessor.getGenericReturnType();
+	}
+
 	public <T> T getValueFrom(final Object obj) {
 		try {
 			return (T) this.accessor.invoke(obj);
@@ -96,6 +109,122 @@ public class DatatypeProperty {
 		}
 	}
 
+	/**
+	 * get the value of a long, int, short, byte or char property without boxing it
+	 */
+	public long getLongFrom(final Object obj) {
+		if (null == this.longGetter_cache) {
+			this.longGetter_cache = this.createGetter(long.class);
+		}
+		try {
+			return (long) this.longGetter_cache.invokeExact(obj);
+		} catch (final Throwable e) {
+			throw new DatatypeException("Error getting value from object for property " + this.getName(), e);
+		}
+	}
+
+	/**
+	 * get the value of a double or float property without boxing it
+	 */
+	public double getDoubleFrom(final Object obj) {
+		if (null == this.doubleGetter_cache) {
+			this.doubleGetter_cache = this.createGetter(double.class);
+		}
+		try {
+			return (double) this.doubleGetter_cache.invokeExact(obj);
+		} catch (final Throwable e) {
+			throw new DatatypeException("Error getting value from object for property " + this.getName(), e);
+		}
+	}
+
+	private MethodHandle createGetter(final Class<?> primitiveType) {
+		try {
+			try {
+				this.accessor.setAccessible(true);
+			} catch (final RuntimeException e) {
+				// e.g. its module does not open it to us, unreflect still succeeds if it is public
+			}
+			final MethodHandle mh = MethodHandles.lookup().unreflect(this.accessor);
+			return mh.asType(MethodType.methodType(primitiveType, Object.class));
+		} catch (final Exception e) {
+			throw new DatatypeException("Property " + this.getName() + " cannot be read as a " + primitiveType.getName(), e);
+		}
+	}
+
+	/**
+	 * set the value of a long, int, short, byte or char property without boxing it, the value is narrowed to the property's type
+	 *
+	 * @throws DatatypeException
+	 *             if the value is out of the range of the property's type
+	 */
+	public void setLongFor(final Object obj, final long value) {
+		if (null == this.longSetter_cache) {
+			this.longSetter_cache = this.createSetter(long.class);
+		}
+		if (!this.isInRange(value)) {
+			throw new DatatypeException("Value " + value + " is out of range for property " + this.getName() + " of type " + this.getType().getName(), null);
+		}
+		try {
+			this.longSetter_cache.invokeExact(obj, value);
+		} catch (final Throwable e) {
+			throw new DatatypeException("Unable to set property value", e);
+		}
+	}
+
+	/**
+	 * set the value of a double or float property without boxing it, the value is narrowed to the property's type
+	 *
+	 * @throws DatatypeException
+	 *             if the value is finite but too large for the property's type
+	 */
+	public void setDoubleFor(final Object obj, final double value) {
+		if (null == this.doubleSetter_cache) {
+			this.doubleSetter_cache = this.createSetter(double.class);
+		}
+		if (float.class == this.getType() && !Double.isInfinite(value) && Math.abs(value) > Float.MAX_VALUE) {
+			throw new DatatypeException("Value " + value + " is out of range for property " + this.getName() + " of type float", null);
+		}
+		try {
+			this.doubleSetter_cache.invokeExact(obj, value);
+		} catch (final Throwable e) {
+			throw new DatatypeException("Unable to set property value", e);
+		}
+	}
+
+	private boolean isInRange(final long value) {
+		final Class<?> type = this.getType();
+		if (int.class == type) {
+			return Integer.MIN_VALUE <= value && value <= Integer.MAX_VALUE;
+		} else if (short.class == type) {
+			return Short.MIN_VALUE <= value && value <= Short.MAX_VALUE;
+		} else if (byte.class == type) {
+			return Byte.MIN_VALUE <= value && value <= Byte.MAX_VALUE;
+		} else if (char.class == type) {
+			return Character.MIN_VALUE <= value && value <= Character.MAX_VALUE;
+		} else {
+			return true;
+		}
+	}
+
+	private MethodHandle createSetter(final Class<?> primitiveType) {
+		final Method mutator = this.calcMutator();
+		if (null == mutator || !this.getType().isPrimitive()) {
+			throw new DatatypeException("Property " + this.getName() + " cannot be set from a " + primitiveType.getName(), null);
+		}
+		try {
+			try {
+				mutator.setAccessible(true);
+			} catch (final RuntimeException e) {
+				// as in createGetter
+			}
+			final MethodHandle mh = MethodHandles.lookup().unreflect(mutator);
+			// explicit cast, rather than asType, so that the value can be narrowed
+			return MethodHandles.explicitCastArguments(mh, MethodType.methodType(void.class, Object.class, primitiveType));
+		} catch (final Exception e) {
+			throw new DatatypeException("Property " + this.getName() + " cannot be set from a " + primitiveType.getName(), e);
+		}
+	}
+
 	public void setValueFor(final Object obj, final Object value) {
 		try {
 			final Method mutator = this.calcMutator();
@@ -15,12 +15,18 @@
  */
 package net.akehurst.datatype.common.model;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.hjson.JsonObject;
 import org.hjson.JsonValue;
@@ -28,18 +34,75 @@ import org.hjson.JsonValue;
 import net.akehurst.datatype.annotation.Datatype;
 import net.akehurst.datatype.annotation.Query;
 import net.akehurst.datatype.api.DatatypeException;
+import net.akehurst.datatype.common.MappedFileReader;
 
+/**
+ * Holds the DatatypeInfo for each known class. A registry may be shared by transformers running on different threads.
+ */
 public class DatatypeRegistry {
 
 	private final Map<Class<?>, DatatypeInfo> datatypes;
+	private final Map<Class<?>, DatatypeIdentityComparator> identityComparators;
+	private final LongAdder lookups;
+	private final LongAdder lookupMisses;
+	private final LongAdder metadataBuildNanos;
 
 	public DatatypeRegistry() {
-		this.datatypes = new HashMap<>();
+		this.datatypes = new ConcurrentHashMap<>();
+		this.identityComparators = new ConcurrentHashMap<>();
+		this.lookups = new LongAdder();
+		this.lookupMisses = new LongAdder();
+		this.metadataBuildNanos = new LongAdder();
+	}
+
+	public int getDatatypeCount() {
+		return this.datatypes.size();
+	}
+
+	public int getIdentityComparatorCount() {
+		return this.identityComparators.size();
+	}
+
+	/**
+	 * @return the number of calls to getDatatypeInfo
+	 */
+	public long getLookupCount() {
+		return this.lookups.sum();
+	}
+
+	/**
+	 * @return the number of calls to getDatatypeInfo that had to create a DatatypeInfo
+	 */
+	public long getLookupMissCount() {
+		return this.lookupMisses.sum();
+	}
+
+	/**
+	 * @return the total time spent loading definitions, creating DatatypeInfo and building their property tables
+	 */
+	public long getMetadataBuildNanos() {
+		return this.metadataBuildNanos.sum();
+	}
+
+	void metadataBuilt(final long nanos) {
+		this.metadataBuildNanos.add(nanos);
 	}
 
 	public void registerFromResource(final InputStream ins) {
+		this.registerFrom(new InputStreamReader(ins), ins);
+	}
+
+	public void registerFromFile(final Path file) {
+		try (Reader reader = new MappedFileReader(file)) {
+			this.registerFrom(reader, file);
+		} catch (final IOException e) {
+			throw new DatatypeException("Error trying to register datatypes from file " + file, e);
+		}
+	}
+
+	private void registerFrom(final Reader reader, final Object source) {
+		final long start = System.nanoTime();
 		try {
-			final Reader reader = new InputStreamReader(ins);
 			final JsonValue json = JsonValue.readHjson(reader);
 
 			for (final JsonValue dt : json.asObject().get("datatypes").asArray()) {
@@ -50,6 +113,7 @@ public class DatatypeRegistry {
 						throw new DatatypeException("class not found for " + javaTypeName, null);
 					}
 					final DatatypeInfoFromDefinition datatype = new DatatypeInfoFromDefinition(this, cls);
+					datatype.setImmutable(dt.asObject().getBoolean("immutable", false));
 					this.datatypes.put(cls, datatype);
 
 					final Map<String, JsonObject> jsonPropInfo = new HashMap<>();
@@ -82,7 +146,9 @@ public class DatatypeRegistry {
 				}
 			}
 		} catch (final Exception e) {
-			throw new DatatypeException("Error trying to register datatypes from resource " + ins, e);
+			throw new DatatypeException("Error trying to register datatypes from resource " + source, e);
+		} finally {
+			this.metadataBuilt(System.nanoTime() - start);
 		}
 
 	}
@@ -91,15 +157,43 @@ public class DatatypeRegistry {
 		if (null == class_ || Object.class == class_) {
 			return null;
 		}
+		this.lookups.increment();
 		DatatypeInfo dti = this.datatypes.get(class_);
 		if (null == dti) {
-			dti = new DatatypeInfoFromJavaClass(this, class_);
-			this.datatypes.put(class_, dti);
-
+			final long start = System.nanoTime();
+			dti = this.datatypes.computeIfAbsent(class_, c -> {
+				this.lookupMisses.increment();
+				return new DatatypeInfoFromJavaClass(this, c);
+			});
+			this.metadataBuilt(System.nanoTime() - start);
 		}
 		return dti;
 	}
 
+	/**
+	 * @return the class and identity values of the given datatype object
+	 */
+	public DatatypeIdentity getIdentity(final Object datatype) {
+		final List<DatatypeProperty> identity = this.getDatatypeInfo(datatype.getClass()).getPropertyIdentity();
+		final Object[] values = new Object[identity.size()];
+		for (int i = 0; i < values.length; ++i) {
+			values[i] = identity.get(i).getValueFrom(datatype);
+		}
+		return new DatatypeIdentity(datatype.getClass(), values);
+	}
+
+	/**
+	 * @return a comparator that orders instances of the given datatype by their identity values, in identity index order
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Comparator<T> getIdentityComparator(final Class<T> class_) {
+		DatatypeIdentityComparator cmp = this.identityComparators.get(class_);
+		if (null == cmp) {
+			cmp = this.identityComparators.computeIfAbsent(class_, c -> new DatatypeIdentityComparator(this, c));
+		}
+		return (Comparator<T>) cmp;
+	}
+
 	public boolean isDatatype(final Class<?> class_) {
 		if (null == class_ || Object.class == class_) {
 			return false;
@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common.monitor;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import net.akehurst.datatype.api.DatatypeException;
+import net.akehurst.datatype.common.model.DatatypeRegistry;
+
+/**
+ * Opt-in registration of registries and transformer statistics with the platform MBeanServer, under the domain "net.akehurst.datatype".
+ *
+ * <p>
+ * To watch a transformer, give it a TransformStatistics as its monitor and register that.
+ *
+ */
+public final class DatatypeMBeans {
+
+	public static final String DOMAIN = "net.akehurst.datatype";
+
+	private DatatypeMBeans() {
+	}
+
+	public static ObjectName register(final String name, final DatatypeRegistry registry) {
+		return DatatypeMBeans.register("DatatypeRegistry", name, new RegistryStatistics(registry));
+	}
+
+	public static ObjectName register(final String name, final TransformStatistics statistics) {
+		return DatatypeMBeans.register("TransformStatistics", name, statistics);
+	}
+
+	public static void unregister(final ObjectName objectName) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		} catch (final JMException e) {
+			throw new DatatypeException("Unable to unregister MBean " + objectName, e);
+		}
+	}
+
+	private static ObjectName register(final String type, final String name, final Object mbean) {
+		try {
+			final ObjectName objectName = new ObjectName(DatatypeMBeans.DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, objectName);
+			return objectName;
+		} catch (final JMException e) {
+			throw new DatatypeException("Unable to register MBean for " + type + " " + name, e);
+		}
+	}
+
+	private static final class RegistryStatistics implements DatatypeRegistryMXBean {
+		private final DatatypeRegistry registry;
+
+		RegistryStatistics(final DatatypeRegistry registry) {
+			this.registry = registry;
+		}
+
+		@Override
+		public int getDatatypeCount() {
+			return this.registry.getDatatypeCount();
+		}
+
+		@Override
+		public int getIdentityComparatorCount() {
+			return this.registry.getIdentityComparatorCount();
+		}
+
+		@Override
+		public long getLookupCount() {
+			return this.registry.getLookupCount();
+		}
+
+		@Override
+		public long getLookupMissCount() {
+			return this.registry.getLookupMissCount();
+		}
+
+		@Override
+		public double getLookupHitRatio() {
+			final long lookups = this.registry.getLookupCount();
+			return 0 == lookups ? 0 : 1.0 - (double) this.registry.getLookupMissCount() / lookups;
+		}
+
+		@Override
+		public long getMetadataBuildNanos() {
+			return this.registry.getMetadataBuildNanos();
+		}
+	}
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common.monitor;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts durations in exponentially sized buckets: bucket 0 holds durations under 1 microsecond, bucket i those under 2^i microseconds, and the
+ * last bucket everything longer. Safe to share between threads.
+ */
+public class LatencyHistogram {
+
+	public static final int BUCKETS = 33;
+
+	private final LongAdder[] counts;
+
+	public LatencyHistogram() {
+		this.counts = new LongAdder[LatencyHistogram.BUCKETS];
+		for (int i = 0; i < this.counts.length; ++i) {
+			this.counts[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * @return the exclusive upper bound, in nanoseconds, of each bucket but the last
+	 */
+	public static long[] getBucketBoundsNanos() {
+		final long[] res = new long[LatencyHistogram.BUCKETS - 1];
+		for (int i = 0; i < res.length; ++i) {
+			res[i] = 1000L << i;
+		}
+		return res;
+	}
+
+	public void record(final long nanos) {
+		final long micros = nanos / 1000;
+		final int bucket = 0 == micros ? 0 : Math.min(LatencyHistogram.BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+		this.counts[bucket].increment();
+	}
+
+	public long[] getCounts() {
+		final long[] res = new long[this.counts.length];
+		for (int i = 0; i < res.length; ++i) {
+			res[i] = this.counts[i].sum();
+		}
+		return res;
+	}
+
+	public void reset() {
+		for (final LongAdder c : this.counts) {
+			c.reset();
+		}
+	}
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common.monitor;
+
+/**
+ * Receives events from a transformer's hot paths, e.g. to collect statistics.
+ *
+ * <p>
+ * Transformers only take timings and call the event methods when isEnabled returns true, so the default, NOOP, costs a single check per event.
+ * Rule timings include the time spent in nested rule invocations. Implementations must be thread safe if the monitor is shared by transformers
+ * running concurrently.
+ *
+ */
+public interface TransformMonitor {
+
+	TransformMonitor NOOP = new TransformMonitor() {
+		@Override
+		public boolean isEnabled() {
+			return false;
+		}
+	};
+
+	/**
+	 * @return a monitor that emits Flight Recorder events, or NOOP if jdk.jfr is not available in this JVM
+	 */
+	static TransformMonitor jfrIfAvailable() {
+		return TransformMonitor.jfrIfAvailable(-1);
+	}
+
+	/**
+	 * @param ruleThresholdNanos
+	 *            also emit an event for each rule invocation taking at least this long, negative for none
+	 * @return a monitor that emits Flight Recorder events, or NOOP if jdk.jfr is not available in this JVM
+	 */
+	static TransformMonitor jfrIfAvailable(final long ruleThresholdNanos) {
+		try {
+			Class.forName("jdk.jfr.Event", false, TransformMonitor.class.getClassLoader());
+		} catch (final ClassNotFoundException | LinkageError e) {
+			return TransformMonitor.NOOP;
+		}
+		try {
+			// loaded reflectively, so that this interface does not depend on jdk.jfr
+			final Class<?> cls = Class.forName("net.akehurst.datatype.common.monitor.JfrTransformMonitor");
+			return (TransformMonitor) cls.getConstructor(long.class).newInstance(ruleThresholdNanos);
+		} catch (final ReflectiveOperationException | LinkageError e) {
+			return TransformMonitor.NOOP;
+		}
+	}
+
+	default boolean isEnabled() {
+		return true;
+	}
+
+	/**
+	 * a top level operation, e.g. toHJson or toDatatype, has started
+	 */
+	default void operationStarted(final String operation) {
+	}
+
+	/**
+	 * @param rootClass
+	 *            the class of the Java datatype transformed or produced, null if there is none
+	 */
+	default void operationFinished(final String operation, final Class<?> rootClass, final long nanos) {
+	}
+
+	/**
+	 * a rule has transformed a value
+	 *
+	 * @param valueClass
+	 *            the class of the Java value transformed or produced, null for null
+	 */
+	default void ruleInvoked(final Class<?> ruleClass, final Class<?> valueClass, final boolean left2Right, final long nanos) {
+	}
+
+	/**
+	 * a reference path has been built to a referenced object, pathLength is -1 if the object was not found
+	 */
+	default void referenceCreated(final int pathLength, final long nanos) {
+	}
+
+	/**
+	 * a reference path has been followed to the referenced value
+	 */
+	default void referenceResolved(final int pathLength, final long nanos) {
+	}
+
+	/**
+	 * a lookup in one of the transformer's caches, e.g. "memo" or "canonical"
+	 */
+	default void cacheLookup(final String cache, final boolean hit) {
+	}
+
+	/**
+	 * output has been written, within the current operation
+	 */
+	default void outputWritten(final long chars) {
+	}
+
+	/**
+	 * part of the output of the current operation was written for values of valueClass, not counting the nested values written for other
+	 * classes; measured as compact JSON
+	 */
+	default void classWritten(final Class<?> valueClass, final long chars) {
+	}
+
+}
@@ -0,0 +1,238 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common.monitor;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A TransformMonitor that accumulates counts and timings, per operation, rule, value class and cache. Safe to share between threads.
+ */
+public class TransformStatistics implements TransformMonitor, TransformStatisticsMXBean {
+
+	/**
+	 * number of events, sum of an amount associated with each (e.g. path length), and total time
+	 */
+	public static final class Counter {
+		private final LongAdder count = new LongAdder();
+		private final LongAdder total = new LongAdder();
+		private final LongAdder nanos = new LongAdder();
+
+		void record(final long amount, final long nanos) {
+			this.count.increment();
+			this.total.add(amount);
+			this.nanos.add(nanos);
+		}
+
+		void reset() {
+			this.count.reset();
+			this.total.reset();
+			this.nanos.reset();
+		}
+
+		public long getCount() {
+			return this.count.sum();
+		}
+
+		public long getTotal() {
+			return this.total.sum();
+		}
+
+		public long getNanos() {
+			return this.nanos.sum();
+		}
+
+		@Override
+		public String toString() {
+			return "{count=" + this.getCount() + ", total=" + this.getTotal() + ", nanos=" + this.getNanos() + "}";
+		}
+	}
+
+	private final Map<String, Counter> operations = new ConcurrentHashMap<>();
+	private final Map<String, LatencyHistogram> operationLatencies = new ConcurrentHashMap<>();
+	private final Map<Class<?>, Counter> rules = new ConcurrentHashMap<>();
+	private final Map<Class<?>, Counter> classes = new ConcurrentHashMap<>();
+	// total is the number of hits
+	private final Map<String, Counter> caches = new ConcurrentHashMap<>();
+	private final Counter referencesCreated = new Counter();
+	private final Counter referencesResolved = new Counter();
+	private final LongAdder charsWritten = new LongAdder();
+	private final Map<Class<?>, LongAdder> classCharsWritten = new ConcurrentHashMap<>();
+
+	@Override
+	public void operationFinished(final String operation, final Class<?> rootClass, final long nanos) {
+		this.operations.computeIfAbsent(operation, k -> new Counter()).record(0, nanos);
+		this.operationLatencies.computeIfAbsent(operation, k -> new LatencyHistogram()).record(nanos);
+	}
+
+	@Override
+	public void ruleInvoked(final Class<?> ruleClass, final Class<?> valueClass, final boolean left2Right, final long nanos) {
+		this.rules.computeIfAbsent(ruleClass, k -> new Counter()).record(0, nanos);
+		if (null != valueClass) {
+			this.classes.computeIfAbsent(valueClass, k -> new Counter()).record(0, nanos);
+		}
+	}
+
+	@Override
+	public void referenceCreated(final int pathLength, final long nanos) {
+		this.referencesCreated.record(Math.max(0, pathLength), nanos);
+	}
+
+	@Override
+	public void referenceResolved(final int pathLength, final long nanos) {
+		this.referencesResolved.record(pathLength, nanos);
+	}
+
+	@Override
+	public void cacheLookup(final String cache, final boolean hit) {
+		this.caches.computeIfAbsent(cache, k -> new Counter()).record(hit ? 1 : 0, 0);
+	}
+
+	@Override
+	public void outputWritten(final long chars) {
+		this.charsWritten.add(chars);
+	}
+
+	@Override
+	public void classWritten(final Class<?> valueClass, final long chars) {
+		this.classCharsWritten.computeIfAbsent(valueClass, k -> new LongAdder()).add(chars);
+	}
+
+	public Map<String, Counter> getOperations() {
+		return Collections.unmodifiableMap(this.operations);
+	}
+
+	public Map<Class<?>, Counter> getRules() {
+		return Collections.unmodifiableMap(this.rules);
+	}
+
+	public Map<Class<?>, Counter> getClasses() {
+		return Collections.unmodifiableMap(this.classes);
+	}
+
+	/**
+	 * @return the chars written for each class of value, not counting nested values of other classes
+	 */
+	public Map<Class<?>, Long> getClassCharsWritten() {
+		final Map<Class<?>, Long> res = new HashMap<>();
+		this.classCharsWritten.forEach((k, v) -> res.put(k, v.sum()));
+		return res;
+	}
+
+	public Map<String, Counter> getCaches() {
+		return Collections.unmodifiableMap(this.caches);
+	}
+
+	/**
+	 * @return the fraction of lookups in the named cache that were hits, 0 if there were none
+	 */
+	public double getCacheHitRate(final String cache) {
+		final Counter c = this.caches.get(cache);
+		return null == c || 0 == c.getCount() ? 0 : (double) c.getTotal() / c.getCount();
+	}
+
+	public Counter getReferencesCreated() {
+		return this.referencesCreated;
+	}
+
+	public Counter getReferencesResolved() {
+		return this.referencesResolved;
+	}
+
+	@Override
+	public Map<String, Long> getOperationCounts() {
+		final Map<String, Long> res = new HashMap<>();
+		this.operations.forEach((k, v) -> res.put(k, v.getCount()));
+		return res;
+	}
+
+	@Override
+	public Map<String, Long> getOperationTotalNanos() {
+		final Map<String, Long> res = new HashMap<>();
+		this.operations.forEach((k, v) -> res.put(k, v.getNanos()));
+		return res;
+	}
+
+	@Override
+	public Map<String, long[]> getOperationLatencyHistograms() {
+		final Map<String, long[]> res = new HashMap<>();
+		this.operationLatencies.forEach((k, v) -> res.put(k, v.getCounts()));
+		return res;
+	}
+
+	@Override
+	public long[] getLatencyBucketBoundsNanos() {
+		return LatencyHistogram.getBucketBoundsNanos();
+	}
+
+	@Override
+	public Map<String, Double> getCacheHitRates() {
+		final Map<String, Double> res = new HashMap<>();
+		this.caches.keySet().forEach(k -> res.put(k, this.getCacheHitRate(k)));
+		return res;
+	}
+
+	@Override
+	public long getReferencesCreatedCount() {
+		return this.referencesCreated.getCount();
+	}
+
+	@Override
+	public long getReferencesResolvedCount() {
+		return this.referencesResolved.getCount();
+	}
+
+	@Override
+	public double getReferencesMeanPathLength() {
+		final long count = this.referencesCreated.getCount() + this.referencesResolved.getCount();
+		return 0 == count ? 0 : (double) (this.referencesCreated.getTotal() + this.referencesResolved.getTotal()) / count;
+	}
+
+	@Override
+	public long getCharsWritten() {
+		return this.charsWritten.sum();
+	}
+
+	@Override
+	public Map<String, Long> getCharsWrittenByClass() {
+		final Map<String, Long> res = new HashMap<>();
+		this.classCharsWritten.forEach((k, v) -> res.put(k.getName(), v.sum()));
+		return res;
+	}
+
+	@Override
+	public void reset() {
+		this.operations.clear();
+		this.operationLatencies.clear();
+		this.rules.clear();
+		this.classes.clear();
+		this.caches.clear();
+		this.referencesCreated.reset();
+		this.referencesResolved.reset();
+		this.charsWritten.reset();
+		this.classCharsWritten.clear();
+	}
+
+	@Override
+	public String toString() {
+		return "TransformStatistics{operations=" + this.operations + ", rules=" + this.rules + ", classes=" + this.classes + ", caches=" + this.caches
+				+ ", referencesCreated=" + this.referencesCreated + ", referencesResolved=" + this.referencesResolved + ", charsWritten="
+				+ this.getCharsWritten() + ", charsWrittenByClass=" + this.getCharsWrittenByClass() + "}";
+	}
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common.monitor;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link TransformStatistics}, see {@link DatatypeMBeans}.
+ */
+public interface TransformStatisticsMXBean {
+
+	Map<String, Long> getOperationCounts();
+
+	Map<String, Long> getOperationTotalNanos();
+
+	/**
+	 * @return the latency histogram of each operation, bucketed as by getLatencyBucketBoundsNanos
+	 */
+	Map<String, long[]> getOperationLatencyHistograms();
+
+	long[] getLatencyBucketBoundsNanos();
+
+	Map<String, Double> getCacheHitRates();
+
+	long getReferencesCreatedCount();
+
+	long getReferencesResolvedCount();
+
+	double getReferencesMeanPathLength();
+
+	long getCharsWritten();
+
+	Map<String, Long> getCharsWrittenByClass();
+
+	void reset();
+
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common.transform;
+
+/**
+ * A rule relating values of type L to values of type R, applied by a {@link DatatypeTransformer} in either direction.
+ *
+ * <p>
+ * construct creates the target (with whatever is needed to identify it), update then fills in its remaining members. Splitting the two lets the
+ * transformer record the target before its members are transformed, so that references back to it find it.
+ *
+ */
+public interface DatatypeRule<L, R> {
+
+	boolean isValidForLeft2Right(L left, DatatypeTransformer transformer);
+
+	boolean isValidForRight2Left(R right, DatatypeTransformer transformer);
+
+	boolean isAMatch(L left, R right, DatatypeTransformer transformer);
+
+	R constructLeft2Right(L left, DatatypeTransformer transformer);
+
+	L constructRight2Left(R right, DatatypeTransformer transformer);
+
+	void updateLeft2Right(L left, R right, DatatypeTransformer transformer);
+
+	void updateRight2Left(L left, R right, DatatypeTransformer transformer);
+
+}
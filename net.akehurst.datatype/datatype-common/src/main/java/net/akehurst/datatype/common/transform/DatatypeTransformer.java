@@ -0,0 +1,40 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common.transform;
+
+public interface DatatypeTransformer {
+
+	/**
+	 * transform left using the first registered rule, that is an instance of ruleClass, valid for it
+	 */
+	<L, R> R transformLeft2Right(Class<? extends DatatypeRule<L, R>> ruleClass, L left);
+
+	/**
+	 * transform right using the first registered rule, that is an instance of ruleClass, valid for it
+	 */
+	<L, R> L transformRight2Left(Class<? extends DatatypeRule<L, R>> ruleClass, R right);
+
+	/**
+	 * update an existing right from left, without constructing a new one
+	 */
+	<L, R> void updateLeft2Right(Class<? extends DatatypeRule<L, R>> ruleClass, L left, R right);
+
+	/**
+	 * update an existing left from right, without constructing a new one
+	 */
+	<L, R> void updateRight2Left(Class<? extends DatatypeRule<L, R>> ruleClass, L left, R right);
+
+}
@@ -0,0 +1,273 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common.transform;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.akehurst.datatype.api.DatatypeException;
+
+/**
+ * Applies registered {@link DatatypeRule}s, recording which left corresponds to which right so that each value is transformed once and shared
+ * values stay shared.
+ *
+ * <p>
+ * Performance contract:
+ * <ul>
+ * <li>the rules that may apply to a value are found by the value's exact class, computed on first use for each (rule class, value class) pair and
+ * then a single hash lookup; only those candidates have their isValidFor method called, in registration order</li>
+ * <li>apart from what the rules themselves create, a transform allocates nothing except one correspondence entry per transformed value</li>
+ * <li>correspondence is kept until {@link #clearCorrespondence()}, so a transformer used for many unrelated documents should be cleared between
+ * them</li>
+ * <li>an instance is not thread safe; use one per thread</li>
+ * </ul>
+ *
+ */
+public class DatatypeTransformerBasic implements DatatypeTransformer {
+
+	private static final DatatypeRule<?, ?>[] NONE = new DatatypeRule<?, ?>[0];
+
+	private final List<DatatypeRule<Object, Object>> rules;
+	private final Map<DatatypeRule<?, ?>, Class<?>> leftTypes;
+	private final Map<DatatypeRule<?, ?>, Class<?>> rightTypes;
+	// ruleClass -> value class (Void for null) -> candidate rules
+	private final Map<Class<?>, Map<Class<?>, DatatypeRule<?, ?>[]>> left2RightIndex;
+	private final Map<Class<?>, Map<Class<?>, DatatypeRule<?, ?>[]>> right2LeftIndex;
+	private final Map<Object, Object> left2Right;
+	private final Map<Object, Object> right2Left;
+
+	public DatatypeTransformerBasic() {
+		this.rules = new ArrayList<>();
+		this.leftTypes = new IdentityHashMap<>();
+		this.rightTypes = new IdentityHashMap<>();
+		this.left2RightIndex = new HashMap<>();
+		this.right2LeftIndex = new HashMap<>();
+		this.left2Right = new IdentityHashMap<>();
+		this.right2Left = new IdentityHashMap<>();
+	}
+
+	/**
+	 * Rules are tried in the order they are registered. Abstract rule classes are ignored, so a common super rule can be registered and used as
+	 * the ruleClass for all of its subclasses.
+	 */
+	@SuppressWarnings("unchecked")
+	public <L, R> void registerRule(final Class<? extends DatatypeRule<L, R>> ruleClass) {
+		if (Modifier.isAbstract(ruleClass.getModifiers())) {
+			return;
+		}
+		final DatatypeRule<Object, Object> rule;
+		try {
+			rule = (DatatypeRule<Object, Object>) ruleClass.getConstructor().newInstance();
+		} catch (final ReflectiveOperationException e) {
+			throw new DatatypeException("Unable to create rule " + ruleClass.getName(), e);
+		}
+		final Type[] lr = DatatypeTransformerBasic.ruleTypeArguments(ruleClass, new HashMap<>());
+		if (null == lr) {
+			throw new DatatypeException("Unable to find the types related by rule " + ruleClass.getName(), null);
+		}
+		this.rules.add(rule);
+		this.leftTypes.put(rule, DatatypeTransformerBasic.rawClass(lr[0]));
+		this.rightTypes.put(rule, DatatypeTransformerBasic.rawClass(lr[1]));
+		this.left2RightIndex.clear();
+		this.right2LeftIndex.clear();
+	}
+
+	/**
+	 * forget which values have been transformed, so that they will be transformed again
+	 */
+	public void clearCorrespondence() {
+		this.left2Right.clear();
+		this.right2Left.clear();
+	}
+
+	/**
+	 * @return the first rule, that is an instance of ruleClass, valid for left, or null if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	protected <L, R> DatatypeRule<L, R> findRuleLeft2Right(final Class<? extends DatatypeRule<L, R>> ruleClass, final L left) {
+		for (final DatatypeRule<?, ?> r : this.candidates(this.left2RightIndex, this.leftTypes, ruleClass, left)) {
+			final DatatypeRule<L, R> rule = (DatatypeRule<L, R>) r;
+			if (rule.isValidForLeft2Right(left, this)) {
+				return rule;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the first rule, that is an instance of ruleClass, valid for right, or null if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	protected <L, R> DatatypeRule<L, R> findRuleRight2Left(final Class<? extends DatatypeRule<L, R>> ruleClass, final R right) {
+		for (final DatatypeRule<?, ?> r : this.candidates(this.right2LeftIndex, this.rightTypes, ruleClass, right)) {
+			final DatatypeRule<L, R> rule = (DatatypeRule<L, R>) r;
+			if (rule.isValidForRight2Left(right, this)) {
+				return rule;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <L, R> R transformLeft2Right(final Class<? extends DatatypeRule<L, R>> ruleClass, final L left) {
+		if (null != left) {
+			final Object existing = this.left2Right.get(left);
+			if (null != existing) {
+				return (R) existing;
+			}
+		}
+		final DatatypeRule<L, R> rule = this.findRuleLeft2Right(ruleClass, left);
+		if (null == rule) {
+			throw new DatatypeException("No rule in " + ruleClass.getSimpleName() + " can transform " + left, null);
+		}
+		final R right = rule.constructLeft2Right(left, this);
+		if (null != left && null != right) {
+			this.left2Right.put(left, right);
+		}
+		rule.updateLeft2Right(left, right, this);
+		return right;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <L, R> L transformRight2Left(final Class<? extends DatatypeRule<L, R>> ruleClass, final R right) {
+		if (null == right) {
+			return null;
+		}
+		final Object existing = this.right2Left.get(right);
+		if (null != existing) {
+			return (L) existing;
+		}
+		final DatatypeRule<L, R> rule = this.findRuleRight2Left(ruleClass, right);
+		if (null == rule) {
+			throw new DatatypeException("No rule in " + ruleClass.getSimpleName() + " can transform " + right, null);
+		}
+		final L left = rule.constructRight2Left(right, this);
+		if (null != left) {
+			this.right2Left.put(right, left);
+		}
+		rule.updateRight2Left(left, right, this);
+		return left;
+	}
+
+	@Override
+	public <L, R> void updateLeft2Right(final Class<? extends DatatypeRule<L, R>> ruleClass, final L left, final R right) {
+		final DatatypeRule<L, R> rule = this.findRuleLeft2Right(ruleClass, left);
+		if (null != rule) {
+			rule.updateLeft2Right(left, right, this);
+		}
+	}
+
+	@Override
+	public <L, R> void updateRight2Left(final Class<? extends DatatypeRule<L, R>> ruleClass, final L left, final R right) {
+		final DatatypeRule<L, R> rule = this.findRuleRight2Left(ruleClass, right);
+		if (null != rule) {
+			if (null != right && null != left) {
+				this.right2Left.put(right, left);
+			}
+			rule.updateRight2Left(left, right, this);
+		}
+	}
+
+	private DatatypeRule<?, ?>[] candidates(final Map<Class<?>, Map<Class<?>, DatatypeRule<?, ?>[]>> index, final Map<DatatypeRule<?, ?>, Class<?>> types,
+			final Class<?> ruleClass, final Object value) {
+		final Class<?> valueClass = null == value ? Void.class : value.getClass();
+		Map<Class<?>, DatatypeRule<?, ?>[]> byValue = index.get(ruleClass);
+		if (null == byValue) {
+			byValue = new HashMap<>();
+			index.put(ruleClass, byValue);
+		}
+		DatatypeRule<?, ?>[] res = byValue.get(valueClass);
+		if (null == res) {
+			final List<DatatypeRule<?, ?>> list = new ArrayList<>();
+			for (final DatatypeRule<?, ?> rule : this.rules) {
+				if (ruleClass.isInstance(rule) && DatatypeTransformerBasic.accepts(types.get(rule), valueClass)) {
+					list.add(rule);
+				}
+			}
+			res = list.isEmpty() ? DatatypeTransformerBasic.NONE : list.toArray(new DatatypeRule<?, ?>[list.size()]);
+			byValue.put(valueClass, res);
+		}
+		return res;
+	}
+
+	// null (Void) is accepted only by rules for Void or Object
+	private static boolean accepts(final Class<?> type, final Class<?> valueClass) {
+		if (Void.class == valueClass) {
+			return Void.class == type || Object.class == type;
+		} else {
+			return Void.class != type && type.isAssignableFrom(valueClass);
+		}
+	}
+
+	// the actual type arguments given to DatatypeRule somewhere above type
+	private static Type[] ruleTypeArguments(final Type type, final Map<TypeVariable<?>, Type> bindings) {
+		final Class<?> raw = DatatypeTransformerBasic.rawClass(type);
+		if (type instanceof ParameterizedType) {
+			final Type[] args = ((ParameterizedType) type).getActualTypeArguments();
+			final TypeVariable<?>[] params = raw.getTypeParameters();
+			final Type[] resolved = new Type[args.length];
+			for (int i = 0; i < args.length; ++i) {
+				final Type a = args[i];
+				resolved[i] = a instanceof TypeVariable && bindings.containsKey(a) ? bindings.get(a) : a;
+			}
+			if (DatatypeRule.class == raw) {
+				return resolved;
+			}
+			for (int i = 0; i < params.length; ++i) {
+				bindings.put(params[i], resolved[i]);
+			}
+		}
+		final List<Type> supers = new ArrayList<>();
+		if (null != raw.getGenericSuperclass()) {
+			supers.add(raw.getGenericSuperclass());
+		}
+		for (final Type t : raw.getGenericInterfaces()) {
+			supers.add(t);
+		}
+		for (final Type t : supers) {
+			final Type[] res = DatatypeTransformerBasic.ruleTypeArguments(t, bindings);
+			if (null != res) {
+				return res;
+			}
+		}
+		return null;
+	}
+
+	private static Class<?> rawClass(final Type type) {
+		if (type instanceof Class) {
+			return (Class<?>) type;
+		} else if (type instanceof ParameterizedType) {
+			return (Class<?>) ((ParameterizedType) type).getRawType();
+		} else if (type instanceof GenericArrayType) {
+			return Object[].class;
+		} else if (type instanceof TypeVariable) {
+			return DatatypeTransformerBasic.rawClass(((TypeVariable<?>) type).getBounds()[0]);
+		} else {
+			return Object.class;
+		}
+	}
+
+}
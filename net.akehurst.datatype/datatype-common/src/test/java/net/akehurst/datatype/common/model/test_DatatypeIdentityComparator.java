@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.akehurst.datatype.annotation.Datatype;
+import net.akehurst.datatype.annotation.Identity;
+
+public class test_DatatypeIdentityComparator {
+
+    @Datatype
+    public static class Item {
+        private final String ns;
+        private final long id;
+
+        public Item(final String ns, final long id) {
+            this.ns = ns;
+            this.id = id;
+        }
+
+        @Identity(0)
+        public String getNs() {
+            return this.ns;
+        }
+
+        @Identity(1)
+        public long getId() {
+            return this.id;
+        }
+    }
+
+    @Test
+    public void compare() {
+        final DatatypeRegistry registry = new DatatypeRegistry();
+        final Comparator<Item> cmp = registry.getIdentityComparator(Item.class);
+        Assert.assertSame(cmp, registry.getIdentityComparator(Item.class));
+
+        final Item a1 = new Item("a", 1);
+        final Item a2 = new Item("a", 2);
+        final Item b1 = new Item("b", 1);
+        final Item n1 = new Item(null, 1);
+
+        final List<Item> items = new ArrayList<>(Arrays.asList(b1, a2, n1, a1));
+        items.sort(cmp);
+
+        Assert.assertEquals(Arrays.asList(n1, a1, a2, b1), items);
+        Assert.assertEquals(0, cmp.compare(a1, new Item("a", 1)));
+    }
+
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common.model;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.hjson.JsonValue;
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.akehurst.datatype.common.test_DatatypeRepository.Book;
+import net.akehurst.datatype.common.test_DatatypeRepository.Library;
+
+public class test_DatatypePath {
+
+    @Test
+    public void java() {
+        final DatatypeRegistry registry = new DatatypeRegistry();
+        final Library lib = new Library("central");
+        final Book b1 = new Book("1", 1990);
+        final Book b2 = new Book("2", 2000);
+        lib.getBooks().addAll(Arrays.asList(b1, b2));
+
+        final DatatypePath p = DatatypePath.compile(registry, Library.class, "books/1/year");
+        Assert.assertEquals(2000, p.get(lib));
+        Assert.assertEquals(2000, p.get(lib));
+        Assert.assertNull(DatatypePath.compile(registry, "books/5/year").get(lib));
+        Assert.assertEquals(Arrays.asList(1990, 2000), DatatypePath.compile(registry, "books/*/year").getAll(lib));
+    }
+
+    @Test
+    public void java_sortedMapOfNonStringKeys() {
+        final DatatypeRegistry registry = new DatatypeRegistry();
+        final Map<Instant, String> m = new TreeMap<>();
+        m.put(Instant.ofEpochSecond(20), "b");
+        m.put(Instant.ofEpochSecond(10), "a");
+
+        Assert.assertEquals("b", DatatypePath.compile(registry, "1").get(m));
+        Assert.assertNull(DatatypePath.compile(registry, "x").get(m));
+    }
+
+    @Test
+    public void hjson() {
+        final DatatypeRegistry registry = new DatatypeRegistry();
+        final JsonValue json = JsonValue.readJSON("{ \"books\": { \"$type\": \"List\", \"$elements\": [ { \"isbn\": \"1\" }, { \"isbn\": \"2\" } ] },"
+                + " \"tags\": { \"$type\": \"Map\", \"$elements\": [ { \"key\": \"a\", \"value\": { \"n\": 1 } } ] } }");
+
+        Assert.assertEquals("2", DatatypePath.compile(registry, "books/1/isbn").get(json).asString());
+        Assert.assertEquals(2, DatatypePath.compile(registry, "books/*/isbn").getAll(json).size());
+        Assert.assertEquals(1, DatatypePath.compile(registry, "tags/a/n").get(json).asInt());
+    }
+
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common.monitor;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.akehurst.datatype.common.model.DatatypeRegistry;
+import net.akehurst.datatype.common.test_DatatypeRepository.Book;
+
+public class test_DatatypeMBeans {
+
+    @Test
+    public void register() throws Exception {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final DatatypeRegistry registry = new DatatypeRegistry();
+        registry.getDatatypeInfo(Book.class).getProperty();
+        registry.getDatatypeInfo(Book.class);
+
+        final ObjectName rn = DatatypeMBeans.register("test", registry);
+        final ObjectName sn = DatatypeMBeans.register("test", new TransformStatistics());
+        try {
+            Assert.assertEquals(1, server.getAttribute(rn, "DatatypeCount"));
+            Assert.assertEquals(0.5, (Double) server.getAttribute(rn, "LookupHitRatio"), 0.0);
+            Assert.assertEquals(0L, server.getAttribute(sn, "CharsWritten"));
+        } finally {
+            DatatypeMBeans.unregister(rn);
+            DatatypeMBeans.unregister(sn);
+        }
+        Assert.assertFalse(server.isRegistered(rn));
+    }
+
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.akehurst.datatype.common.model.DatatypeIdentity;
+
+public class test_CanonicalMap {
+
+    @Test
+    public void putIfAbsent_firstWins() {
+        for (final CanonicalMap.Strength strength : CanonicalMap.Strength.values()) {
+            final CanonicalMap sut = new CanonicalMap(strength);
+            final DatatypeIdentity id = new DatatypeIdentity(String.class, new Object[] { "a" });
+            final String first = new String("a");
+            final String second = new String("a");
+
+            Assert.assertSame(first, sut.putIfAbsent(id, first));
+            Assert.assertSame(first, sut.putIfAbsent(new DatatypeIdentity(String.class, new Object[] { "a" }), second));
+            Assert.assertSame(first, sut.get(id));
+            Assert.assertEquals(1, sut.size());
+        }
+    }
+
+}
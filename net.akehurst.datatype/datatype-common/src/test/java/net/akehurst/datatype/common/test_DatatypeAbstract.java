@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.akehurst.datatype.common;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class test_DatatypeAbstract {
+
+    static class Key extends DatatypeAbstract {
+        Key(final String name, final long id) {
+            super(name, id);
+        }
+
+        @Override
+        public List<Object> getIdentityValues() {
+            return super.getIdentityValues();
+        }
+    }
+
+    @Test
+    public void equals_hashCode() {
+        final Key a = new Key("a", 1);
+        final Key b = new Key("a", 1);
+        final Key c = new Key("a", 2);
+
+        Assert.assertEquals(a, a);
+        Assert.assertEquals(a, b);
+        Assert.assertNotEquals(a, c);
+        Assert.assertNotEquals(a, null);
+        Assert.assertEquals(a.hashCode(), b.hashCode());
+
+        final Set<Key> set = new HashSet<>();
+        set.add(a);
+        Assert.assertTrue(set.contains(b));
+        Assert.assertFalse(set.contains(c));
+        // both hashes now cached
+        c.hashCode();
+        Assert.assertNotEquals(a, c);
+    }
+
+    @Test
+    public void getIdentityValues() {
+        final Key a = new Key("a", 1);
+        Assert.assertEquals(2, a.getIdentityValues().size());
+        Assert.assertSame(a.getIdentityValues(), a.getIdentityValues());
+    }
+
+    static class LongKey extends DatatypeAbstractLong {
+        LongKey(final long id) {
+            super(id);
+        }
+    }
+
+    static class LongIntKey extends DatatypeAbstractLongInt {
+        LongIntKey(final long id, final int version) {
+            super(id, version);
+        }
+    }
+
+    static class StringLongKey extends DatatypeAbstractStringLong {
+        StringLongKey(final String ns, final long id) {
+            super(ns, id);
+        }
+    }
+
+    @Test
+    public void primitiveIdentity() {
+        Assert.assertEquals(new LongKey(5), new LongKey(5));
+        Assert.assertNotEquals(new LongKey(5), new LongKey(6));
+        Assert.assertEquals(new LongKey(5).hashCode(), new LongKey(5).hashCode());
+
+        Assert.assertEquals(new LongIntKey(5, 1), new LongIntKey(5, 1));
+        Assert.assertNotEquals(new LongIntKey(5, 1), new LongIntKey(5, 2));
+
+        Assert.assertEquals(new StringLongKey("a", 5), new StringLongKey("a", 5));
+        Assert.assertNotEquals(new StringLongKey("a", 5), new StringLongKey("b", 5));
+        Assert.assertEquals(new StringLongKey("a", 5).hashCode(), new StringLongKey("a", 5).hashCode());
+
+        Assert.assertNotEquals(new LongKey(5), new LongIntKey(5, 0));
+    }
+
+}
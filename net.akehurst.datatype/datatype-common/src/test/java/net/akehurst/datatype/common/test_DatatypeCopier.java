@@ -0,0 +1,137 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.akehurst.datatype.annotation.Datatype;
+import net.akehurst.datatype.annotation.Identity;
+import net.akehurst.datatype.annotation.Reference;
+import net.akehurst.datatype.common.model.DatatypeRegistry;
+
+public class test_DatatypeCopier {
+
+    @Datatype
+    public static class Node {
+        private final String name;
+        private final List<Node> children;
+        private Node ref;
+
+        public Node(final String name) {
+            this.name = name;
+            this.children = new ArrayList<>();
+        }
+
+        @Identity(0)
+        public String getName() {
+            return this.name;
+        }
+
+        public List<Node> getChildren() {
+            return this.children;
+        }
+
+        @Reference
+        public Node getRef() {
+            return this.ref;
+        }
+
+        public void setRef(final Node value) {
+            this.ref = value;
+        }
+    }
+
+    @Datatype
+    public static class Edge {
+        private final Node from;
+
+        public Edge(final Node from) {
+            this.from = from;
+        }
+
+        @Identity(0)
+        @Reference
+        public Node getFrom() {
+            return this.from;
+        }
+    }
+
+    @Datatype
+    public static class Graph {
+        private final List<Edge> edges;
+        private final List<Node> nodes;
+
+        public Graph() {
+            this.edges = new ArrayList<>();
+            this.nodes = new ArrayList<>();
+        }
+
+        public List<Edge> getEdges() {
+            return this.edges;
+        }
+
+        public List<Node> getNodes() {
+            return this.nodes;
+        }
+    }
+
+    @Test
+    public void copy() {
+        final Node root = new Node("root");
+        final Node a = new Node("a");
+        final Node b = new Node("b");
+        root.getChildren().add(a);
+        root.getChildren().add(b);
+        a.setRef(b);
+        b.setRef(root);
+
+        final Node copy = new DatatypeCopier(new DatatypeRegistry()).copy(root);
+
+        Assert.assertNotSame(root, copy);
+        Assert.assertEquals("root", copy.getName());
+        Assert.assertEquals(2, copy.getChildren().size());
+        final Node ca = copy.getChildren().get(0);
+        final Node cb = copy.getChildren().get(1);
+        Assert.assertNotSame(a, ca);
+        Assert.assertEquals("a", ca.getName());
+        Assert.assertSame(cb, ca.getRef());
+        Assert.assertSame(copy, cb.getRef());
+    }
+
+    @Test
+    public void copy_identityReference() {
+        final Graph graph = new Graph();
+        final Node root = new Node("root");
+        final Node a = new Node("a");
+        final Node outside = new Node("outside");
+        root.getChildren().add(a); // copied after the edges
+        graph.getNodes().add(root);
+        graph.getEdges().add(new Edge(a));
+        graph.getEdges().add(new Edge(outside));
+
+        final Graph copy = new DatatypeCopier(new DatatypeRegistry()).copy(graph);
+
+        final Node ca = copy.getNodes().get(0).getChildren().get(0);
+        Assert.assertNotSame(a, ca);
+        Assert.assertSame(ca, copy.getEdges().get(0).getFrom());
+        Assert.assertSame(outside, copy.getEdges().get(1).getFrom());
+    }
+
+}
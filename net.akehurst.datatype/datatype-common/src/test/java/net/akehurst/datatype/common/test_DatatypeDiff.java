@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.akehurst.datatype.common.DatatypeChange.Kind;
+import net.akehurst.datatype.common.model.DatatypeRegistry;
+import net.akehurst.datatype.common.test_DatatypeRepository.Book;
+import net.akehurst.datatype.common.test_DatatypeRepository.Library;
+
+public class test_DatatypeDiff {
+
+    @Test
+    public void diff() {
+        final DatatypeDiff diff = new DatatypeDiff(new DatatypeRegistry());
+        final Book shared = new Book("0", 1980);
+
+        final Library v1 = new Library("central");
+        v1.getBooks().addAll(Arrays.asList(shared, new Book("1", 1990), new Book("2", 2000)));
+
+        final Library v2 = new Library("central");
+        v2.getBooks().addAll(Arrays.asList(shared, new Book("3", 2010), new Book("1", 1991)));
+
+        Assert.assertTrue(diff.diff(v1, v1).isEmpty());
+
+        final List<DatatypeChange> changes = diff.diff(v1, v2);
+        Assert.assertEquals(changes.toString(), 3, changes.size());
+        for (final DatatypeChange c : changes) {
+            switch (c.getKind()) {
+                case ADDED:
+                    Assert.assertEquals(Arrays.asList("books", "1"), c.getPath());
+                break;
+                case REMOVED:
+                    Assert.assertEquals(Arrays.asList("books", "2"), c.getPath());
+                break;
+                case CHANGED:
+                    Assert.assertEquals(Arrays.asList("books", "2", "year"), c.getPath());
+                    Assert.assertEquals(1990, c.getOldValue());
+                    Assert.assertEquals(1991, c.getNewValue());
+                break;
+            }
+        }
+        Assert.assertEquals(Kind.CHANGED, diff.diff(v1, new Library("other")).get(0).getKind());
+    }
+
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.akehurst.datatype.annotation.Datatype;
+import net.akehurst.datatype.annotation.Identity;
+import net.akehurst.datatype.common.model.DatatypeRegistry;
+
+public class test_DatatypeRepository {
+
+    @Datatype
+    public static class Library {
+        private final String name;
+        private final List<Book> books;
+
+        public Library(final String name) {
+            this.name = name;
+            this.books = new ArrayList<>();
+        }
+
+        @Identity(0)
+        public String getName() {
+            return this.name;
+        }
+
+        public List<Book> getBooks() {
+            return this.books;
+        }
+    }
+
+    @Datatype
+    public static class Book {
+        private final String isbn;
+        private int year;
+
+        public Book(final String isbn, final int year) {
+            this.isbn = isbn;
+            this.year = year;
+        }
+
+        @Identity(0)
+        public String getIsbn() {
+            return this.isbn;
+        }
+
+        public int getYear() {
+            return this.year;
+        }
+
+        public void setYear(final int value) {
+            this.year = value;
+        }
+    }
+
+    @Datatype
+    public static class Review {
+        private final int stars;
+
+        public Review(final int stars) {
+            this.stars = stars;
+        }
+
+        public int getStars() {
+            return this.stars;
+        }
+    }
+
+    @Test
+    public void add_get_find_update() {
+        final DatatypeRepository repo = new DatatypeRepository(new DatatypeRegistry());
+        repo.declareRangeIndex(Book.class, "year");
+
+        final Library lib = new Library("central");
+        final Book b1 = new Book("1", 1990);
+        final Book b2 = new Book("2", 2000);
+        final Book b3 = new Book("3", 2010);
+        lib.getBooks().addAll(Arrays.asList(b1, b2, b3));
+        repo.add(lib);
+
+        Assert.assertEquals(4, repo.size());
+        Assert.assertSame(lib, repo.get(Library.class, "central"));
+        Assert.assertSame(b2, repo.get(Book.class, "2"));
+        Assert.assertEquals(Arrays.asList(b2), new ArrayList<>(repo.findBy(Book.class, "year", 2000)));
+        Assert.assertEquals(Arrays.asList(b1, b2), new ArrayList<>(repo.findRange(Book.class, "year", 1980, 2010)));
+
+        final Book b4 = new Book("4", 2020);
+        repo.update(lib, l -> {
+            b2.setYear(2015);
+            l.getBooks().remove(b1);
+            l.getBooks().add(b4);
+        });
+
+        Assert.assertNull(repo.get(Book.class, "1"));
+        Assert.assertSame(b4, repo.get(Book.class, "4"));
+        Assert.assertTrue(repo.findBy(Book.class, "year", 2000).isEmpty());
+        Assert.assertEquals(Arrays.asList(b3, b2, b4), new ArrayList<>(repo.findRange(Book.class, "year", 2000, 2100)));
+    }
+
+    @Test
+    public void add_replacesContents() {
+        final DatatypeRepository repo = new DatatypeRepository(new DatatypeRegistry());
+        repo.declareIndex(Book.class, "year");
+
+        final Library lib = new Library("central");
+        final Book b1 = new Book("1", 1990);
+        final Book b2 = new Book("2", 2000);
+        lib.getBooks().addAll(Arrays.asList(b1, b2));
+        repo.add(lib);
+
+        final Library replacement = new Library("central");
+        final Book b2r = new Book("2", 2005);
+        final Book b3 = new Book("3", 2010);
+        replacement.getBooks().addAll(Arrays.asList(b2r, b3));
+        repo.add(replacement);
+
+        Assert.assertEquals(3, repo.size());
+        Assert.assertSame(replacement, repo.get(Library.class, "central"));
+        Assert.assertNull(repo.get(Book.class, "1"));
+        Assert.assertSame(b2r, repo.get(Book.class, "2"));
+        Assert.assertTrue(repo.findBy(Book.class, "year", 1990).isEmpty());
+        Assert.assertTrue(repo.findBy(Book.class, "year", 2000).isEmpty());
+        Assert.assertEquals(Arrays.asList(b2r), new ArrayList<>(repo.findBy(Book.class, "year", 2005)));
+    }
+
+    @Test
+    public void withoutIdentity() {
+        final DatatypeRepository repo = new DatatypeRepository(new DatatypeRegistry());
+        repo.declareIndex(Review.class, "stars");
+
+        final Review r1 = new Review(5);
+        final Review r2 = new Review(1);
+        repo.add(Arrays.asList(r1, r2));
+
+        Assert.assertEquals(2, repo.size());
+        Assert.assertEquals(Arrays.asList(r1), new ArrayList<>(repo.findBy(Review.class, "stars", 5)));
+
+        repo.remove(r2);
+        Assert.assertEquals(1, repo.size());
+        Assert.assertTrue(repo.findBy(Review.class, "stars", 1).isEmpty());
+    }
+
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.akehurst.datatype.api.DatatypeException;
+import net.akehurst.datatype.common.DatatypeWalker.Mode;
+import net.akehurst.datatype.common.DatatypeWalker.WalkResult;
+import net.akehurst.datatype.common.model.DatatypeRegistry;
+import net.akehurst.datatype.common.test_DatatypeCopier.Node;
+
+public class test_DatatypeWalker {
+
+    private Node tree(final int width) {
+        final Node root = new Node("root");
+        for (int i = 0; i < width; ++i) {
+            final Node c = new Node("c" + i);
+            c.getChildren().add(new Node("g" + i));
+            root.getChildren().add(c);
+        }
+        return root;
+    }
+
+    @Test
+    public void prePost_skip() {
+        final Node root = this.tree(2);
+        final List<String> events = new ArrayList<>();
+        new DatatypeWalker(new DatatypeRegistry(), Mode.COMPOSITE).walk(root, new DatatypeWalker.Visitor() {
+            @Override
+            public WalkResult pre(final DatatypeWalker.Position position, final Object value) {
+                if (value instanceof Node) {
+                    events.add("pre " + ((Node) value).getName());
+                    return "c1".equals(((Node) value).getName()) ? WalkResult.SKIP_CHILDREN : WalkResult.CONTINUE;
+                }
+                return WalkResult.CONTINUE;
+            }
+
+            @Override
+            public void post(final DatatypeWalker.Position position, final Object value) {
+                if (value instanceof Node) {
+                    events.add("post " + ((Node) value).getName());
+                }
+            }
+        });
+        Assert.assertEquals(Arrays.asList("pre root", "pre c0", "pre g0", "post g0", "post c0", "pre c1", "post c1", "post root"), events);
+    }
+
+    @Test
+    public void findPath_cycle() {
+        final Node root = this.tree(3);
+        final DatatypeWalker walker = new DatatypeWalker(new DatatypeRegistry(), Mode.COMPOSITE);
+        final Node g2 = root.getChildren().get(2).getChildren().get(0);
+        Assert.assertEquals(Arrays.asList("children", "2", "children", "0"), walker.findPath(root, v -> v == g2));
+
+        g2.getChildren().add(root);
+        try {
+            walker.findPath(root, v -> false);
+            Assert.fail();
+        } catch (final DatatypeException e) {
+            Assert.assertTrue(e.getMessage().contains("Cycle found"));
+        }
+        // references are not walked in composite mode, and cycles through them are expected otherwise
+        g2.getChildren().clear();
+        g2.setRef(root);
+        Assert.assertNull(new DatatypeWalker(new DatatypeRegistry(), Mode.FOLLOW_REFERENCES).findPath(root, v -> false));
+    }
+
+    @Test
+    public void parallel() {
+        final Node root = this.tree(1000);
+        // reached from every parallel task, but visited once
+        final Node shared = new Node("shared");
+        for (final Node c : root.getChildren()) {
+            c.getChildren().add(shared);
+        }
+        final AtomicInteger count = new AtomicInteger();
+        new DatatypeWalker(new DatatypeRegistry(), Mode.COMPOSITE).parallel(ForkJoinPool.commonPool(), 100).walk(root, (pos, v) -> {
+            if (v instanceof Node) {
+                count.incrementAndGet();
+            }
+            return WalkResult.CONTINUE;
+        });
+        Assert.assertEquals(2002, count.get());
+    }
+
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.akehurst.datatype.common;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class test_MappedFileReader {
+
+    private Path file;
+
+    @Before
+    public void setup() throws IOException {
+        this.file = Files.createTempFile("test_MappedFileReader", ".hjson");
+    }
+
+    @After
+    public void teardown() throws IOException {
+        Files.deleteIfExists(this.file);
+    }
+
+    private String readAll(final Reader reader, final int bufSize) throws IOException {
+        final StringBuilder b = new StringBuilder();
+        final char[] buf = new char[bufSize];
+        int n = reader.read(buf);
+        while (n >= 0) {
+            b.append(buf, 0, n);
+            n = reader.read(buf);
+        }
+        return b.toString();
+    }
+
+    @Test
+    public void empty() throws IOException {
+        try (Reader reader = new MappedFileReader(this.file)) {
+            Assert.assertEquals(-1, reader.read());
+        }
+    }
+
+    @Test
+    public void multibyte_acrossChunks() throws IOException {
+        final String text = "{ name: \"J\u00f6rg \u20ac \ud83d\ude00\" }\n"; // 2, 3 and 4 byte UTF-8 sequences
+        Files.write(this.file, text.getBytes(StandardCharsets.UTF_8));
+
+        for (int chunk = 1; chunk < 10; ++chunk) {
+            try (Reader reader = new MappedFileReader(this.file, chunk)) {
+                Assert.assertEquals(text, this.readAll(reader, 64));
+            }
+            try (Reader reader = new MappedFileReader(this.file, chunk)) {
+                Assert.assertEquals(text, this.readAll(reader, 1));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.common.transform;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.akehurst.datatype.api.DatatypeException;
+
+public class test_DatatypeTransformerBasic {
+
+    public static abstract class Object2String<L> implements DatatypeRule<L, String> {
+        @Override
+        public boolean isValidForLeft2Right(final L left, final DatatypeTransformer transformer) {
+            return true;
+        }
+
+        @Override
+        public boolean isValidForRight2Left(final String right, final DatatypeTransformer transformer) {
+            return true;
+        }
+
+        @Override
+        public boolean isAMatch(final L left, final String right, final DatatypeTransformer transformer) {
+            return false;
+        }
+
+        @Override
+        public void updateLeft2Right(final L left, final String right, final DatatypeTransformer transformer) {
+        }
+
+        @Override
+        public void updateRight2Left(final L left, final String right, final DatatypeTransformer transformer) {
+        }
+    }
+
+    public static class Integer2String extends Object2String<Integer> {
+        @Override
+        public boolean isValidForRight2Left(final String right, final DatatypeTransformer transformer) {
+            return right.matches("-?[0-9]+");
+        }
+
+        @Override
+        public String constructLeft2Right(final Integer left, final DatatypeTransformer transformer) {
+            return "i" + left;
+        }
+
+        @Override
+        public Integer constructRight2Left(final String right, final DatatypeTransformer transformer) {
+            return Integer.valueOf(right);
+        }
+    }
+
+    public static class Number2String extends Object2String<Number> {
+        @Override
+        public String constructLeft2Right(final Number left, final DatatypeTransformer transformer) {
+            return "n" + left;
+        }
+
+        @Override
+        public Number constructRight2Left(final String right, final DatatypeTransformer transformer) {
+            return Double.valueOf(right);
+        }
+    }
+
+    public static class List2String extends Object2String<List<Object>> {
+        @Override
+        public String constructLeft2Right(final List<Object> left, final DatatypeTransformer transformer) {
+            final List<String> res = new ArrayList<>();
+            for (final Object o : left) {
+                res.add(transformer.transformLeft2Right((Class<DatatypeRule<Object, String>>) (Object) Object2String.class, o));
+            }
+            return res.toString();
+        }
+
+        @Override
+        public List<Object> constructRight2Left(final String right, final DatatypeTransformer transformer) {
+            return null;
+        }
+
+        @Override
+        public boolean isValidForRight2Left(final String right, final DatatypeTransformer transformer) {
+            return false;
+        }
+    }
+
+    private DatatypeTransformerBasic sut() {
+        final DatatypeTransformerBasic sut = new DatatypeTransformerBasic();
+        sut.registerRule((Class<DatatypeRule<Object, String>>) (Object) Object2String.class);
+        sut.registerRule(Integer2String.class);
+        sut.registerRule(Number2String.class);
+        sut.registerRule((Class<DatatypeRule<List<Object>, String>>) (Object) List2String.class);
+        return sut;
+    }
+
+    @Test
+    public void firstMatchingRule() {
+        final DatatypeTransformerBasic sut = this.sut();
+        final List<Object> list = new ArrayList<>();
+        list.add(1);
+        list.add(2.5);
+
+        final String s = sut.transformLeft2Right((Class<DatatypeRule<Object, String>>) (Object) Object2String.class, list);
+        Assert.assertEquals("[i1, n2.5]", s);
+
+        Assert.assertEquals(Integer.valueOf(3), sut.transformRight2Left(Integer2String.class, "3"));
+        Assert.assertEquals(Double.valueOf(3.5), sut.transformRight2Left((Class<DatatypeRule<Object, String>>) (Object) Object2String.class, "3.5"));
+    }
+
+    @Test
+    public void correspondence() {
+        final DatatypeTransformerBasic sut = this.sut();
+        final Integer i = new Integer(1000);
+
+        final String s1 = sut.transformLeft2Right(Integer2String.class, i);
+        Assert.assertSame(s1, sut.transformLeft2Right(Integer2String.class, i));
+        sut.clearCorrespondence();
+        Assert.assertNotSame(s1, sut.transformLeft2Right(Integer2String.class, i));
+    }
+
+    @Test(expected = DatatypeException.class)
+    public void noRule() {
+        this.sut().transformLeft2Right((Class<DatatypeRule<Object, String>>) (Object) Object2String.class, "not a number");
+    }
+}
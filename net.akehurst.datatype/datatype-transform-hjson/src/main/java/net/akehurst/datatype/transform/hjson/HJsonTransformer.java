@@ -16,15 +16,62 @@
 
 package net.akehurst.datatype.transform.hjson;
 
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
 import org.hjson.JsonValue;
 
+import net.akehurst.datatype.common.model.DatatypeProjection;
+
 public interface HJsonTransformer {
 
     JsonValue toHJson(Object root, Object datatype);
 
+    /**
+     * As {@link #toHJson(Object, Object)}, run on this transformer's executor by a transformer of its own that shares this transformer's
+     * DatatypeRegistry, so many calls may be in progress at once.
+     */
+    CompletableFuture<JsonValue> toHJsonAsync(Object root, Object datatype);
+
+    /**
+     * As {@link #toHJsonAsync(Object, Object)}, also writing the result to out. The writer is not closed.
+     */
+    CompletableFuture<Void> toHJsonAsync(Object root, Object datatype, Writer out);
+
     <T> T toDatatype(JsonValue root, JsonValue hjson);
 
     <T> T toDatatype(Class<T> class_, JsonValue root, JsonValue hjson);
 
+    /**
+     * Reads an HJSON/JSON document from in and decodes it, run on this transformer's executor by a transformer of its own that shares this
+     * transformer's DatatypeRegistry. The reader is not closed.
+     */
+    <T> CompletableFuture<T> toDatatypeAsync(Reader in);
+
+    /**
+     * Decodes the UTF-8 encoded HJSON/JSON document in the file, which is read through a memory mapping rather than copied through stream buffers.
+     */
+    <T> T toDatatype(Path file);
+
+    /**
+     * Only the members selected by the projection (and the identity members needed to construct each object) are decoded; other members are left
+     * with the value given to them by the constructor.
+     */
+    <T> T toDatatype(JsonValue root, JsonValue hjson, DatatypeProjection projection);
+
+    /**
+     * Lazily decodes a sequence of records, one HJSON/JSON document per line, blank lines are skipped. Each record is decoded by a transformer of
+     * its own that shares this transformer's DatatypeRegistry, so the stream may be made parallel. Closing the stream closes the reader.
+     */
+    <T> Stream<T> toDatatypeStream(Reader lines);
+
+    /**
+     * As {@link #toDatatypeStream(Reader)}, reading the UTF-8 encoded file through a memory mapping.
+     */
+    <T> Stream<T> toDatatypeStream(Path file);
+
     <T> void updateDatatype(T datatype, final JsonValue root, final JsonValue hjson);
 }
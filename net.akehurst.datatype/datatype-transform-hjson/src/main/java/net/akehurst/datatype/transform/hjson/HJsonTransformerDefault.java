@@ -16,11 +16,44 @@
 
 package net.akehurst.datatype.transform.hjson;
 
+import java.io.BufferedReader;
+import java.io.FilterWriter;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import org.hjson.JsonArray;
+import org.hjson.JsonObject;
 import org.hjson.JsonValue;
 
+import net.akehurst.datatype.api.DatatypeException;
+import net.akehurst.datatype.common.CanonicalMap;
+import net.akehurst.datatype.common.MappedFileReader;
+import net.akehurst.datatype.common.model.DatatypeIdentity;
+import net.akehurst.datatype.common.model.DatatypePath;
+import net.akehurst.datatype.common.model.DatatypeProjection;
 import net.akehurst.datatype.common.model.DatatypeRegistry;
+import net.akehurst.datatype.common.monitor.TransformMonitor;
+import net.akehurst.datatype.common.transform.DatatypeRule;
+import net.akehurst.datatype.common.transform.DatatypeTransformerBasic;
 import net.akehurst.datatype.transform.hjson.rule.Boolean2JsonValue;
 import net.akehurst.datatype.transform.hjson.rule.Datatype2HJsonObject;
 import net.akehurst.datatype.transform.hjson.rule.Double2JsonValue;
@@ -36,31 +69,98 @@ import net.akehurst.datatype.transform.hjson.rule.Object2JsonValue;
 import net.akehurst.datatype.transform.hjson.rule.Set2JsonArray;
 import net.akehurst.datatype.transform.hjson.rule.String2JsonValue;
 import net.akehurst.datatype.transform.hjson.rule.Uri2JsonValue;
-import net.akehurst.transform.binary.api.BinaryRule;
-import net.akehurst.transform.binary.basic.BinaryTransformerBasic;
 
-public class HJsonTransformerDefault extends BinaryTransformerBasic implements HJsonTransformer {
+public class HJsonTransformerDefault extends DatatypeTransformerBasic implements HJsonTransformer {
+
+	private static final Executor DEFAULT_EXECUTOR = HJsonTransformerDefault.defaultExecutor();
+	private static final int COMPILED_PATHS_MAX = 1024;
 
 	private Object javaRoot;
 	private JsonValue hjsonRoot;
+	private DatatypeProjection projection;
+	private final List<String> projectionPath;
+	private Executor executor;
+	private boolean memoizeImmutable;
+	private boolean compactMaps;
+	private boolean compactTypedValues;
+	private boolean classDictionary;
+	// type dictionary of the documents being written
+	private final Map<Class<?>, Integer> writeTypeIds;
+	private final List<String> writeTypeNames;
+	// type dictionary of the document being read, each class looked up on first use
+	private JsonArray readTypeNames;
+	private Class<?>[] readTypes;
+	private final Map<String, Class<?>> classByName;
+	// $ref paths already compiled, most recently used last
+	private final Map<String, DatatypePath> compiledPaths;
+	private final Map<DatatypeIdentity, JsonObject> memoized;
+	private final Set<JsonObject> memoizedRight;
+	private CanonicalMap canonicalMap;
+	private final Set<Object> canonicalReused;
+	// constructed datatypes not yet populated, and so not yet published to the canonical map
+	private final Map<Object, DatatypeIdentity> canonicalPending;
+	private TransformMonitor monitor;
+	private boolean oneWay;
+	private boolean oneWayActive;
+	// datatypes decoded by one way dispatch, so that references resolve to the same instance
+	private final Map<JsonObject, Object> decoded;
+	// datatypes and containers being written, from the root down to the current one, so that a composite cycle is reported rather than recursed
+	// into; with the member name or index each is written at (null for the root)
+	private final Set<Object> writing;
+	private final List<String> writePath;
+	// the member name or index of the next value written, set by the rule writing it
+	private String writeSegment;
+	// when monitoring: the class of rule that ran for each transform in progress, innermost last
+	private final List<Class<?>> rulesRun;
+	// when monitoring: the class of value each container in the output was written for
+	private final Map<JsonValue, Class<?>> writtenFor;
 	public DatatypeRegistry registry;
 
 	public HJsonTransformerDefault() {
-		this(null);
+		this((InputStream) null);
 	}
 
 	public HJsonTransformerDefault(final InputStream datatypeDefinitionResource) {
-		this.registry = new DatatypeRegistry();
-		if (null != datatypeDefinitionResource) {
-			this.registry.registerFromResource(datatypeDefinitionResource);
-		}
-		super.registerRule((Class<BinaryRule<Object, JsonValue>>) (Object) Object2JsonValue.class);
+		this(HJsonTransformerDefault.createRegistry(datatypeDefinitionResource));
+	}
+
+	/**
+	 * create a transformer that shares an existing registry, e.g. with other transformers used on other threads
+	 */
+	public HJsonTransformerDefault(final DatatypeRegistry registry) {
+		this.projectionPath = new ArrayList<>();
+		this.executor = HJsonTransformerDefault.DEFAULT_EXECUTOR;
+		this.memoized = new HashMap<>();
+		this.memoizedRight = Collections.newSetFromMap(new IdentityHashMap<>());
+		this.canonicalReused = Collections.newSetFromMap(new IdentityHashMap<>());
+		this.canonicalPending = new IdentityHashMap<>();
+		this.monitor = TransformMonitor.NOOP;
+		this.oneWay = false;
+		this.decoded = new IdentityHashMap<>();
+		this.writing = Collections.newSetFromMap(new IdentityHashMap<>());
+		this.writePath = new ArrayList<>();
+		this.rulesRun = new ArrayList<>();
+		this.writtenFor = new IdentityHashMap<>();
+		this.writeTypeIds = new HashMap<>();
+		this.writeTypeNames = new ArrayList<>();
+		this.classByName = new HashMap<>();
+		this.compiledPaths = new LinkedHashMap<String, DatatypePath>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, DatatypePath> eldest) {
+				return this.size() > HJsonTransformerDefault.COMPILED_PATHS_MAX;
+			}
+		};
+		this.registry = registry;
+		super.registerRule((Class<DatatypeRule<Object, JsonValue>>) (Object) Object2JsonValue.class);
 		super.registerRule(String2JsonValue.class);
-		// ensure Integer and Long are first so that they are matched before Float/Double
+		// members with a numeric type are decoded as that type, these rules only decide the type of an untyped number (e.g. the element of a
+		// raw collection): the smallest of Integer, Long that holds it, else Double
 		super.registerRule(Integer2JsonValue.class);
 		super.registerRule(Long2JsonValue.class);
-		super.registerRule(Float2JsonValue.class);
 		super.registerRule(Double2JsonValue.class);
+		super.registerRule(Float2JsonValue.class);
 		super.registerRule(Boolean2JsonValue.class);
 		super.registerRule(Enum2JsonValue.class);
 		super.registerRule(Instant2JsonValue.class);
@@ -72,6 +172,289 @@ public class HJsonTransformerDefault extends BinaryTransformerBasic implements H
 		super.registerRule(Null2JsonValue.class);
 	}
 
+	/**
+	 * @return a transformer with the same registry and configuration as this one, but none of its per-document state
+	 */
+	private HJsonTransformerDefault createWorker() {
+		final HJsonTransformerDefault worker = new HJsonTransformerDefault(this.registry);
+		worker.executor = this.executor;
+		worker.memoizeImmutable = this.memoizeImmutable;
+		worker.compactMaps = this.compactMaps;
+		worker.compactTypedValues = this.compactTypedValues;
+		worker.classDictionary = this.classDictionary;
+		worker.canonicalMap = this.canonicalMap;
+		worker.monitor = this.monitor;
+		worker.oneWay = this.oneWay;
+		return worker;
+	}
+
+	private static DatatypeRegistry createRegistry(final InputStream datatypeDefinitionResource) {
+		final DatatypeRegistry registry = new DatatypeRegistry();
+		if (null != datatypeDefinitionResource) {
+			registry.registerFromResource(datatypeDefinitionResource);
+		}
+		return registry;
+	}
+
+	private static Executor defaultExecutor() {
+		// use a virtual thread per task when the JDK provides them (Java 21+), found reflectively as we build for Java 8
+		try {
+			final Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (Executor) m.invoke(null);
+		} catch (final ReflectiveOperationException e) {
+			return ForkJoinPool.commonPool();
+		}
+	}
+
+	public Executor getExecutor() {
+		return this.executor;
+	}
+
+	/**
+	 * set the executor used by the asynchronous operations
+	 */
+	public void setExecutor(final Executor value) {
+		this.executor = value;
+	}
+
+	public TransformMonitor getMonitor() {
+		return this.monitor;
+	}
+
+	/**
+	 * receives timings and counts from this transformer and the workers it creates, TransformMonitor.NOOP (the default) to disable
+	 */
+	public void setMonitor(final TransformMonitor value) {
+		this.monitor = null == value ? TransformMonitor.NOOP : value;
+	}
+
+	private long startOperation(final String operation) {
+		if (this.monitor.isEnabled()) {
+			this.monitor.operationStarted(operation);
+			return System.nanoTime();
+		} else {
+			return 0;
+		}
+	}
+
+	private void finishOperation(final String operation, final Object datatype, final long start) {
+		if (this.monitor.isEnabled()) {
+			this.monitor.operationFinished(operation, null == datatype ? null : datatype.getClass(), System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public <L, R> R transformLeft2Right(final Class<? extends DatatypeRule<L, R>> ruleClass, final L left) {
+		final String segment = this.writeSegment;
+		this.writeSegment = null;
+		final boolean tracked = null != left && !HJsonTransformerDefault.isLeaf(left);
+		if (tracked) {
+			if (!this.writing.add(left)) {
+				throw this.compositeCycle(segment, left);
+			}
+			this.writePath.add(segment);
+		}
+		try {
+			if (this.monitor.isEnabled()) {
+				final int depth = this.rulesRun.size();
+				this.rulesRun.add(null);
+				final long start = System.nanoTime();
+				try {
+					final R right = this.dispatchLeft2Right(ruleClass, left);
+					final long nanos = System.nanoTime() - start;
+					final Class<?> ran = this.rulesRun.get(depth);
+					if (null != ran) {
+						// otherwise the output was reused, no rule ran
+						this.monitor.ruleInvoked(ran, null == left ? null : left.getClass(), true, nanos);
+					}
+					if (null != left && (right instanceof JsonObject || right instanceof JsonArray)) {
+						this.writtenFor.putIfAbsent((JsonValue) right, left.getClass());
+					}
+					return right;
+				} finally {
+					this.rulesRun.remove(depth);
+				}
+			} else {
+				return this.dispatchLeft2Right(ruleClass, left);
+			}
+		} finally {
+			if (tracked) {
+				this.writing.remove(left);
+				this.writePath.remove(this.writePath.size() - 1);
+			}
+		}
+	}
+
+	// values that cannot contain others, and so cannot be part of a cycle
+	private static boolean isLeaf(final Object value) {
+		return value instanceof String || value instanceof Number || value instanceof Boolean || value instanceof Enum<?>;
+	}
+
+	private DatatypeException compositeCycle(final String segment, final Object value) {
+		final List<String> path = new ArrayList<>(this.writePath.subList(1, this.writePath.size()));
+		path.add(segment);
+		return new DatatypeException("Did you forget to mark something as a reference? Cycle found at #/" + String.join("/", path)
+				+ " to an object of type " + value.getClass().getName(), null);
+	}
+
+	/**
+	 * name the member the next value is written as, for the path reported if it closes a composite cycle
+	 */
+	public void setWriteSegment(final String segment) {
+		this.writeSegment = segment;
+	}
+
+	public void setWriteSegment(final int index) {
+		this.writeSegment = Integer.toString(index);
+	}
+
+	@Override
+	public <L, R> L transformRight2Left(final Class<? extends DatatypeRule<L, R>> ruleClass, final R right) {
+		if (this.monitor.isEnabled()) {
+			final int depth = this.rulesRun.size();
+			this.rulesRun.add(null);
+			final long start = System.nanoTime();
+			try {
+				final L left = this.dispatchRight2Left(ruleClass, right);
+				final long nanos = System.nanoTime() - start;
+				final Class<?> ran = this.rulesRun.get(depth);
+				if (null != ran) {
+					this.monitor.ruleInvoked(ran, null == left ? null : left.getClass(), false, nanos);
+				}
+				return left;
+			} finally {
+				this.rulesRun.remove(depth);
+			}
+		} else {
+			return this.dispatchRight2Left(ruleClass, right);
+		}
+	}
+
+	@Override
+	protected <L, R> DatatypeRule<L, R> findRuleLeft2Right(final Class<? extends DatatypeRule<L, R>> ruleClass, final L left) {
+		return this.ruleRun(super.findRuleLeft2Right(ruleClass, left));
+	}
+
+	@Override
+	protected <L, R> DatatypeRule<L, R> findRuleRight2Left(final Class<? extends DatatypeRule<L, R>> ruleClass, final R right) {
+		return this.ruleRun(super.findRuleRight2Left(ruleClass, right));
+	}
+
+	// record the rule found for the innermost transform in progress, the first found is the one that runs
+	private <L, R> DatatypeRule<L, R> ruleRun(final DatatypeRule<L, R> rule) {
+		if (null != rule && !this.rulesRun.isEmpty()) {
+			final int last = this.rulesRun.size() - 1;
+			if (null == this.rulesRun.get(last)) {
+				this.rulesRun.set(last, rule.getClass());
+			}
+		}
+		return rule;
+	}
+
+	/**
+	 * report the size of output, and how much of it was written for each class of value
+	 *
+	 * @param chars
+	 *            the number of chars actually written, or -1 to report the size of hjson as compact JSON
+	 */
+	private void reportOutput(final JsonValue hjson, final long chars) {
+		final Map<Class<?>, Long> byClass = new HashMap<>();
+		final long size = this.sizeOf(hjson, byClass)[0];
+		byClass.forEach(this.monitor::classWritten);
+		this.monitor.outputWritten(chars < 0 ? size : chars);
+		this.writtenFor.clear();
+	}
+
+	/**
+	 * @return the size of value as compact JSON, and the part of it attributed to a class in byClass
+	 */
+	private long[] sizeOf(final JsonValue value, final Map<Class<?>, Long> byClass) {
+		long size;
+		long attributed = 0;
+		if (value.isObject()) {
+			size = 1 + Math.max(1, value.asObject().size());
+			for (final JsonObject.Member m : value.asObject()) {
+				final long[] ms = this.sizeOf(m.getValue(), byClass);
+				size += JsonValue.valueOf(m.getName()).toString().length() + 1 + ms[0];
+				attributed += ms[1];
+			}
+		} else if (value.isArray()) {
+			size = 1 + Math.max(1, value.asArray().size());
+			for (final JsonValue e : value.asArray()) {
+				final long[] es = this.sizeOf(e, byClass);
+				size += es[0];
+				attributed += es[1];
+			}
+		} else {
+			size = value.toString().length();
+		}
+		final Class<?> class_ = this.writtenFor.get(value);
+		if (null == class_) {
+			return new long[] { size, attributed };
+		} else {
+			byClass.merge(class_, size - attributed, Long::sum);
+			return new long[] { size, size };
+		}
+	}
+
+	public boolean isOneWay() {
+		return this.oneWay;
+	}
+
+	/**
+	 * Off by default. When set, toHJson and toDatatype find and apply rules directly, rather than through the bidirectional engine, which
+	 * records the correspondence of every left and right object in the document. When decoding, only datatype objects are recorded,
+	 * for the duration of one document, so that references resolve to the same instance. updateDatatype always uses the engine.
+	 */
+	public void setOneWay(final boolean value) {
+		this.oneWay = value;
+	}
+
+	private <L, R> R dispatchLeft2Right(final Class<? extends DatatypeRule<L, R>> ruleClass, final L left) {
+		if (!this.oneWayActive) {
+			return super.transformLeft2Right(ruleClass, left);
+		}
+		final DatatypeRule<L, R> rule = this.findRuleLeft2Right(ruleClass, left);
+		if (null == rule) {
+			throw new DatatypeException("No rule in " + ruleClass.getSimpleName() + " can transform " + left, null);
+		}
+		final R right = rule.constructLeft2Right(left, this);
+		rule.updateLeft2Right(left, right, this);
+		return right;
+	}
+
+	private <L, R> L dispatchRight2Left(final Class<? extends DatatypeRule<L, R>> ruleClass, final R right) {
+		if (!this.oneWayActive) {
+			return (L) this.publishCanonical(super.transformRight2Left(ruleClass, right));
+		}
+		if (null == right) {
+			return null;
+		}
+		final boolean isDatatype = right instanceof JsonObject && null != ((JsonObject) right).get("$class");
+		if (isDatatype) {
+			final Object existing = this.decoded.get(right);
+			if (null != existing) {
+				return (L) existing;
+			}
+		}
+		final DatatypeRule<L, R> rule = this.findRuleRight2Left(ruleClass, right);
+		if (null == rule) {
+			throw new DatatypeException("No rule in " + ruleClass.getSimpleName() + " can transform " + right, null);
+		}
+		final L left = rule.constructRight2Left(right, this);
+		if (isDatatype) {
+			// before update, so that references back to this object find it
+			this.decoded.put((JsonObject) right, left);
+		}
+		rule.updateRight2Left(left, right, this);
+		final L canonical = (L) this.publishCanonical(left);
+		if (isDatatype && canonical != left) {
+			// another thread published an equal instance first, use that from now on
+			this.decoded.put((JsonObject) right, canonical);
+		}
+		return canonical;
+	}
+
 	public DatatypeRegistry getDatatypeRegistry() {
 		return this.registry;
 	}
@@ -82,6 +465,231 @@ public class HJsonTransformerDefault extends BinaryTransformerBasic implements H
 
 	public void setHJsonRoot(final JsonValue value) {
 		this.hjsonRoot = value;
+		final JsonValue types = null != value && value.isObject() ? value.asObject().get("$types") : null;
+		if (null == types) {
+			this.readTypeNames = null;
+			this.readTypes = null;
+		} else {
+			this.readTypeNames = types.asArray();
+			this.readTypes = new Class<?>[this.readTypeNames.size()];
+		}
+	}
+
+	public boolean isProjecting() {
+		return null != this.projection;
+	}
+
+	/**
+	 * push a segment onto the path of the member currently being decoded, does nothing when there is no projection
+	 */
+	public void pushProjectionPath(final String segment) {
+		if (null != this.projection) {
+			this.projectionPath.add(segment);
+		}
+	}
+
+	public void pushProjectionPath(final int index) {
+		if (null != this.projection) {
+			this.projectionPath.add(Integer.toString(index));
+		}
+	}
+
+	public void popProjectionPath() {
+		if (null != this.projection) {
+			this.projectionPath.remove(this.projectionPath.size() - 1);
+		}
+	}
+
+	/**
+	 * @return true if the member currently being decoded is selected by the projection, always true when there is no projection
+	 */
+	public boolean isInProjection() {
+		return null == this.projection || this.projection.includes(this.projectionPath);
+	}
+
+	public boolean isMemoizeImmutable() {
+		return this.memoizeImmutable;
+	}
+
+	/**
+	 * When set, toHJson transforms each Immutable datatype once per identity and reuses the resulting JsonObject for every other occurrence in the
+	 * same document. The reused JsonObject is shared by each parent in the output.
+	 */
+	public void setMemoizeImmutable(final boolean value) {
+		this.memoizeImmutable = value;
+	}
+
+	public boolean isCompactMaps() {
+		return this.compactMaps;
+	}
+
+	/**
+	 * When set, toHJson writes a Map whose keys are all Strings, enums or numbers of one class as an object with a member per entry, and any other
+	 * Map as parallel $keys and $values arrays, rather than as an array of key/value objects. Every form is always accepted by toDatatype.
+	 */
+	public void setCompactMaps(final boolean value) {
+		this.compactMaps = value;
+	}
+
+	public boolean isCompactTypedValues() {
+		return this.compactTypedValues;
+	}
+
+	/**
+	 * When set, toHJson writes a member declared as an Instant as its epoch second, or [epoch second, nano of second], and one declared as a URI as
+	 * a string, without the $type wrapper used for values whose type is not known from the member. Both forms are always accepted by toDatatype.
+	 */
+	public void setCompactTypedValues(final boolean value) {
+		this.compactTypedValues = value;
+	}
+
+	public boolean isClassDictionary() {
+		return this.classDictionary;
+	}
+
+	/**
+	 * When set, toHJson writes each $class as an index into a $types array of class names, added to the root object, rather than as the class
+	 * name. Both forms are always accepted by toDatatype.
+	 */
+	public void setClassDictionary(final boolean value) {
+		this.classDictionary = value;
+	}
+
+	/**
+	 * @return the value to write as the $class of an object of the given class
+	 */
+	public JsonValue getClassTag(final Class<?> class_) {
+		if (this.classDictionary) {
+			Integer id = this.writeTypeIds.get(class_);
+			if (null == id) {
+				id = this.writeTypeNames.size();
+				this.writeTypeIds.put(class_, id);
+				this.writeTypeNames.add(class_.getName());
+			}
+			return JsonValue.valueOf(id);
+		} else {
+			return JsonValue.valueOf(class_.getName());
+		}
+	}
+
+	/**
+	 * @return the class identified by a $class value, either a class name or an index into the $types of the document being read
+	 */
+	public Class<?> getClassFor(final JsonValue tag) {
+		if (tag.isNumber()) {
+			final int id = tag.asInt();
+			if (null == this.readTypes || id < 0 || id >= this.readTypes.length) {
+				throw new DatatypeException("The document has no $types entry for $class " + id, null);
+			}
+			Class<?> class_ = this.readTypes[id];
+			if (null == class_) {
+				class_ = this.classForName(this.readTypeNames.get(id).asString());
+				this.readTypes[id] = class_;
+			}
+			return class_;
+		} else {
+			return this.classForName(tag.asString());
+		}
+	}
+
+	private Class<?> classForName(final String name) {
+		Class<?> class_ = this.classByName.get(name);
+		if (null == class_) {
+			try {
+				class_ = Class.forName(name);
+			} catch (final ClassNotFoundException e) {
+				throw new DatatypeException("Unknown class " + name, e);
+			}
+			this.classByName.put(name, class_);
+		}
+		return class_;
+	}
+
+	/**
+	 * @return the compiled form of a $ref path (without the leading "#/"), compiled only on first use
+	 */
+	public DatatypePath compilePath(final String path) {
+		DatatypePath compiled = this.compiledPaths.get(path);
+		if (null == compiled) {
+			compiled = DatatypePath.compile(this.registry, path);
+			this.compiledPaths.put(path, compiled);
+		}
+		return compiled;
+	}
+
+	public JsonObject getMemoized(final DatatypeIdentity identity) {
+		final JsonObject memo = this.memoized.get(identity);
+		if (this.monitor.isEnabled()) {
+			this.monitor.cacheLookup("memo", null != memo);
+		}
+		return memo;
+	}
+
+	/**
+	 * @return true if the JsonObject is complete, having been taken from the memo
+	 */
+	public boolean isMemoized(final JsonObject right) {
+		return this.memoizedRight.contains(right);
+	}
+
+	public void memoize(final DatatypeIdentity identity, final JsonObject right) {
+		this.memoized.put(identity, right);
+		this.memoizedRight.add(right);
+	}
+
+	public CanonicalMap getCanonicalMap() {
+		return this.canonicalMap;
+	}
+
+	/**
+	 * When set, toDatatype constructs each datatype that has identity properties only once per identity (class and identity values); every later
+	 * occurrence, in this or any later document, is decoded to the same canonical instance. Set to null (the default) to always construct new
+	 * instances.
+	 */
+	public void setCanonicalMap(final CanonicalMap value) {
+		this.canonicalMap = value;
+	}
+
+	/**
+	 * @return the canonical instance for identity, marking it as reused so that it is not populated again, or null if there is none
+	 */
+	public Object reuseCanonical(final DatatypeIdentity identity) {
+		final Object instance = this.canonicalMap.get(identity);
+		if (this.monitor.isEnabled()) {
+			this.monitor.cacheLookup("canonical", null != instance);
+		}
+		if (null != instance) {
+			this.canonicalReused.add(instance);
+		}
+		return instance;
+	}
+
+	/**
+	 * record that datatype is to become the canonical instance for identity once it has been populated
+	 */
+	public void deferCanonical(final DatatypeIdentity identity, final Object datatype) {
+		this.canonicalPending.put(datatype, identity);
+	}
+
+	/**
+	 * publish a populated datatype, if it was deferred, to the canonical map
+	 *
+	 * @return the canonical instance, which is datatype unless an equal instance was published first
+	 */
+	public Object publishCanonical(final Object datatype) {
+		if (null == datatype || this.canonicalPending.isEmpty()) {
+			return datatype;
+		}
+		final DatatypeIdentity identity = this.canonicalPending.remove(datatype);
+		if (null == identity) {
+			return datatype;
+		} else {
+			return this.canonicalMap.putIfAbsent(identity, datatype);
+		}
+	}
+
+	public boolean isCanonicalReused(final Object datatype) {
+		return this.canonicalReused.contains(datatype);
 	}
 
 	public Object getJavaRoot() {
@@ -94,29 +702,214 @@ public class HJsonTransformerDefault extends BinaryTransformerBasic implements H
 
 	@Override
 	public JsonValue toHJson(final Object root, final Object datatype) {
-		this.setJavaRoot(root);
-		final JsonValue hjson = this.transformLeft2Right((Class<BinaryRule<Object, JsonValue>>) (Object) Object2JsonValue.class, datatype);
-		return hjson;
+		final long start = this.startOperation("toHJson");
+		try {
+			final JsonValue hjson = this.transformToHJson(root, datatype);
+			if (this.monitor.isEnabled()) {
+				this.reportOutput(hjson, -1);
+			}
+			return hjson;
+		} finally {
+			this.finishOperation("toHJson", datatype, start);
+		}
+	}
+
+	private JsonValue transformToHJson(final Object root, final Object datatype) {
+		final boolean wasOneWay = this.oneWayActive;
+		this.oneWayActive = this.oneWay;
+		try {
+			this.setJavaRoot(root);
+			this.writtenFor.clear();
+			// memoized values contain reference paths relative to the root, so are only valid within one document
+			this.memoized.clear();
+			this.memoizedRight.clear();
+			this.writing.clear();
+			this.writePath.clear();
+			this.writeSegment = null;
+			// correspondence from earlier documents would otherwise be kept (and reused) for the lifetime of the transformer
+			this.clearCorrespondence();
+			// each document has its own dictionary, no output of earlier calls is reused now that correspondence is cleared
+			this.writeTypeIds.clear();
+			this.writeTypeNames.clear();
+			final JsonValue hjson = this.transformLeft2Right((Class<DatatypeRule<Object, JsonValue>>) (Object) Object2JsonValue.class, datatype);
+			if (this.classDictionary && hjson.isObject() && !this.writeTypeNames.isEmpty()) {
+				final JsonArray types = new JsonArray();
+				for (final String n : this.writeTypeNames) {
+					types.add(n);
+				}
+				// first, so that a reader streaming the document has the dictionary before the $class ids that use it
+				final JsonObject withTypes = new JsonObject();
+				withTypes.add("$types", types);
+				for (final JsonObject.Member m : hjson.asObject()) {
+					withTypes.add(m.getName(), m.getValue());
+				}
+				final Class<?> class_ = this.writtenFor.remove(hjson);
+				if (null != class_) {
+					this.writtenFor.put(withTypes, class_);
+				}
+				return withTypes;
+			}
+			return hjson;
+		} finally {
+			this.oneWayActive = wasOneWay;
+		}
+	}
+
+	@Override
+	public CompletableFuture<JsonValue> toHJsonAsync(final Object root, final Object datatype) {
+		return CompletableFuture.supplyAsync(() -> this.createWorker().toHJson(root, datatype), this.executor);
+	}
+
+	@Override
+	public CompletableFuture<Void> toHJsonAsync(final Object root, final Object datatype, final Writer out) {
+		return CompletableFuture.runAsync(() -> {
+			final HJsonTransformerDefault worker = this.createWorker();
+			final long start = worker.startOperation("writeHJson");
+			try {
+				final JsonValue hjson = worker.transformToHJson(root, datatype);
+				if (worker.monitor.isEnabled()) {
+					final CountingWriter counter = new CountingWriter(out);
+					hjson.writeTo(counter);
+					worker.reportOutput(hjson, counter.count);
+				} else {
+					hjson.writeTo(out);
+				}
+				out.flush();
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			} finally {
+				worker.finishOperation("writeHJson", datatype, start);
+			}
+		}, this.executor);
+	}
+
+	@Override
+	public <T> CompletableFuture<T> toDatatypeAsync(final Reader in) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				final JsonValue hjson = JsonValue.readHjson(in);
+				return this.createWorker().toDatatype(hjson, hjson);
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, this.executor);
 	}
 
 	@Override
 	public <T> T toDatatype(final Class<T> class_, final JsonValue root, final JsonValue hjson) {
-		this.setHJsonRoot(root);
-		final Object datatype = this.transformRight2Left((Class<BinaryRule<Object, JsonValue>>) (Object) Object2JsonValue.class, hjson);
-		return (T) datatype;
+		return this.toDatatype(root, hjson);
 	}
 
 	@Override
 	public <T> T toDatatype(final JsonValue root, final JsonValue hjson) {
-		this.setHJsonRoot(root);
-		final Object datatype = this.transformRight2Left((Class<BinaryRule<Object, JsonValue>>) (Object) Object2JsonValue.class, hjson);
-		return (T) datatype;
+		final long start = this.startOperation("toDatatype");
+		final boolean wasOneWay = this.oneWayActive;
+		this.oneWayActive = this.oneWay;
+		Object datatype = null;
+		try {
+			this.setHJsonRoot(root);
+			this.canonicalReused.clear();
+			this.canonicalPending.clear();
+			this.decoded.clear();
+			this.clearCorrespondence();
+			datatype = this.transformRight2Left((Class<DatatypeRule<Object, JsonValue>>) (Object) Object2JsonValue.class, hjson);
+			return (T) datatype;
+		} finally {
+			this.oneWayActive = wasOneWay;
+			this.decoded.clear();
+			this.finishOperation("toDatatype", datatype, start);
+		}
+	}
+
+	@Override
+	public <T> T toDatatype(final Path file) {
+		try (Reader reader = new MappedFileReader(file)) {
+			final JsonValue hjson = JsonValue.readHjson(reader);
+			return this.toDatatype(hjson, hjson);
+		} catch (final IOException e) {
+			throw new DatatypeException("Unable to read datatype from " + file, e);
+		}
+	}
+
+	@Override
+	public <T> T toDatatype(final JsonValue root, final JsonValue hjson, final DatatypeProjection projection) {
+		this.projection = projection;
+		this.projectionPath.clear();
+		try {
+			return this.toDatatype(root, hjson);
+		} finally {
+			this.projection = null;
+			this.projectionPath.clear();
+		}
+	}
+
+	@Override
+	public <T> Stream<T> toDatatypeStream(final Reader lines) {
+		final BufferedReader reader = lines instanceof BufferedReader ? (BufferedReader) lines : new BufferedReader(lines);
+		// one worker per thread, a thread decodes the records of one split at a time, so records share the worker's rule index and caches
+		// but not its per-document state, which toDatatype resets
+		final ThreadLocal<HJsonTransformerDefault> workers = ThreadLocal.withInitial(this::createWorker);
+		return StreamSupport.stream(new LineSpliterator(reader), false).onClose(() -> {
+			try {
+				reader.close();
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}).map(line -> workers.get().<T>toDatatypeRecord(line));
+	}
+
+	@Override
+	public <T> Stream<T> toDatatypeStream(final Path file) {
+		try {
+			return this.toDatatypeStream(new BufferedReader(new MappedFileReader(file)));
+		} catch (final IOException e) {
+			throw new DatatypeException("Unable to read datatypes from " + file, e);
+		}
+	}
+
+	private <T> T toDatatypeRecord(final String line) {
+		final JsonValue hjson = JsonValue.readHjson(line);
+		return this.toDatatype(hjson, hjson);
 	}
 
 	@Override
 	public <T> void updateDatatype(final T datatype, final JsonValue root, final JsonValue hjson) {
-		this.setHJsonRoot(root);
-		this.updateRight2Left((Class<BinaryRule<Object, JsonValue>>) (Object) Object2JsonValue.class, datatype, hjson);
+		final long start = this.startOperation("updateDatatype");
+		final boolean wasOneWay = this.oneWayActive;
+		this.oneWayActive = false;
+		try {
+			this.setHJsonRoot(root);
+			this.updateRight2Left((Class<DatatypeRule<Object, JsonValue>>) (Object) Object2JsonValue.class, datatype, hjson);
+		} finally {
+			this.oneWayActive = wasOneWay;
+			this.finishOperation("updateDatatype", datatype, start);
+		}
+	}
+
+	private static final class CountingWriter extends FilterWriter {
+		long count;
+
+		CountingWriter(final Writer out) {
+			super(out);
+		}
+
+		@Override
+		public void write(final int c) throws IOException {
+			super.write(c);
+			++this.count;
+		}
+
+		@Override
+		public void write(final char[] cbuf, final int off, final int len) throws IOException {
+			super.write(cbuf, off, len);
+			this.count += len;
+		}
+
+		@Override
+		public void write(final String str, final int off, final int len) throws IOException {
+			super.write(str, off, len);
+			this.count += len;
+		}
 	}
 
 }
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.akehurst.datatype.transform.hjson;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the non-blank lines of a reader. Splits hand off a fixed size batch of whole lines, so a parallel stream never holds more than a
+ * few batches in memory.
+ */
+class LineSpliterator implements Spliterator<String> {
+
+	static final int BATCH_SIZE = 1024;
+
+	private final BufferedReader reader;
+
+	LineSpliterator(final BufferedReader reader) {
+		this.reader = reader;
+	}
+
+	private String nextLine() {
+		try {
+			String line = this.reader.readLine();
+			while (null != line && line.trim().isEmpty()) {
+				line = this.reader.readLine();
+			}
+			return line;
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public boolean tryAdvance(final Consumer<? super String> action) {
+		final String line = this.nextLine();
+		if (null == line) {
+			return false;
+		} else {
+			action.accept(line);
+			return true;
+		}
+	}
+
+	@Override
+	public Spliterator<String> trySplit() {
+		final String[] batch = new String[LineSpliterator.BATCH_SIZE];
+		int n = 0;
+		while (n < batch.length) {
+			final String line = this.nextLine();
+			if (null == line) {
+				break;
+			}
+			batch[n] = line;
+			++n;
+		}
+		if (0 == n) {
+			return null;
+		} else {
+			return Spliterators.spliterator(batch, 0, n, this.characteristics());
+		}
+	}
+
+	@Override
+	public long estimateSize() {
+		return Long.MAX_VALUE;
+	}
+
+	@Override
+	public int characteristics() {
+		return Spliterator.ORDERED | Spliterator.NONNULL;
+	}
+
+}
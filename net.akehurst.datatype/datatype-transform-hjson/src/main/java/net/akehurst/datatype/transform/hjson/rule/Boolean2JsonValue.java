@@ -20,42 +20,42 @@ import java.util.Objects;
 
 import org.hjson.JsonValue;
 
-import net.akehurst.transform.binary.api.BinaryTransformer;
+import net.akehurst.datatype.common.transform.DatatypeTransformer;
 
 public class Boolean2JsonValue extends Object2JsonValue<Boolean, JsonValue> {
 
     @Override
-    public boolean isValidForLeft2Right(final Boolean left, final BinaryTransformer transformer) {
+    public boolean isValidForLeft2Right(final Boolean left, final DatatypeTransformer transformer) {
         return true;
     }
 
     @Override
-    public boolean isValidForRight2Left(final JsonValue right, final BinaryTransformer transformer) {
+    public boolean isValidForRight2Left(final JsonValue right, final DatatypeTransformer transformer) {
         return right.isBoolean();
     }
 
     @Override
-    public boolean isAMatch(final Boolean left, final JsonValue right, final BinaryTransformer transformer) {
+    public boolean isAMatch(final Boolean left, final JsonValue right, final DatatypeTransformer transformer) {
         return Objects.equals(left, right.asBoolean());
     }
 
     @Override
-    public JsonValue constructLeft2Right(final Boolean left, final BinaryTransformer transformer) {
+    public JsonValue constructLeft2Right(final Boolean left, final DatatypeTransformer transformer) {
         return JsonValue.valueOf(left);
     }
 
     @Override
-    public Boolean constructRight2Left(final JsonValue right, final BinaryTransformer transformer) {
+    public Boolean constructRight2Left(final JsonValue right, final DatatypeTransformer transformer) {
         return right.asBoolean();
     }
 
     @Override
-    public void updateLeft2Right(final Boolean left, final JsonValue right, final BinaryTransformer transformer) {
+    public void updateLeft2Right(final Boolean left, final JsonValue right, final DatatypeTransformer transformer) {
 
     }
 
     @Override
-    public void updateRight2Left(final Boolean left, final JsonValue right, final BinaryTransformer transformer) {
+    public void updateRight2Left(final Boolean left, final JsonValue right, final DatatypeTransformer transformer) {
 
     }
 
@@ -17,29 +17,30 @@
 package net.akehurst.datatype.transform.hjson.rule;
 
 import java.lang.reflect.Constructor;
+import java.net.URI;
+import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
 
 import org.hjson.JsonArray;
 import org.hjson.JsonObject;
 import org.hjson.JsonValue;
-import org.jooq.lambda.Seq;
-import org.jooq.lambda.tuple.Tuple2;
 
 import net.akehurst.datatype.api.DatatypeException;
+import net.akehurst.datatype.common.DatatypeWalker;
+import net.akehurst.datatype.common.model.DatatypeIdentity;
 import net.akehurst.datatype.common.model.DatatypeInfo;
+import net.akehurst.datatype.common.model.DatatypePath;
 import net.akehurst.datatype.common.model.DatatypeProperty;
 import net.akehurst.datatype.common.model.DatatypeRegistry;
+import net.akehurst.datatype.common.monitor.TransformMonitor;
+import net.akehurst.datatype.common.transform.DatatypeRule;
+import net.akehurst.datatype.common.transform.DatatypeTransformer;
 import net.akehurst.datatype.transform.hjson.HJsonTransformerDefault;
-import net.akehurst.transform.binary.api.BinaryRule;
-import net.akehurst.transform.binary.api.BinaryTransformer;
-import net.akehurst.transform.binary.api.TransformException;
 
 /**
  * The class for the LHS objects must be annotated with @Datatype. Constructor arguments for the LHS object must correspond to an accessor annotated
@@ -47,144 +48,194 @@ import net.akehurst.transform.binary.api.TransformException;
  * contains the full class name of the transformed LHS object.
  *
  */
-public class Datatype2HJsonObject extends Object2JsonValue<Object, JsonObject> implements BinaryRule<Object, JsonObject> {
+public class Datatype2HJsonObject extends Object2JsonValue<Object, JsonObject> implements DatatypeRule<Object, JsonObject> {
 
 	// should get set in ... before it is used
 	private DatatypeRegistry registry;
 
 	private List<String> createPath(final Object from, final Object to) {
-		if (null == from) {
-			return null;
-		} else if (Objects.equals(from, to)) {
-			return new ArrayList<>();
-		} else {
-			if (from instanceof Collection<?>) {
-				final Collection<?> arr = (Collection<?>) from;
-				int i = 0;
-				for (final Object o : arr) {
-					final List<String> path = this.createPath(o, to);
-					if (null != path) {
-						path.add(0, Integer.toString(i));
-						return path;
-					}
-					++i;
-				}
-				return null;
-			} else if (this.registry.isDatatype(from.getClass())) { // treat from as an Object
-				final DatatypeInfo datatype = this.registry.getDatatypeInfo(from.getClass());
-				for (final DatatypeProperty pi : datatype.getPropertyComposite()) {
-					if (!pi.isReference()) {
-						final Object value = pi.getValueFrom(from);
-						final List<String> path = this.createPath(value, to);
-						if (null != path) {
-							path.add(0, pi.getName());
-							return path;
-						}
-					}
-				}
-				return null;
-			} else {
-				return null;
-			}
-		}
+		return new DatatypeWalker(this.registry, DatatypeWalker.Mode.COMPOSITE).findPath(from, v -> Objects.equals(v, to));
 	}
 
-	private JsonObject getReferenceTo(final Object referedToObject, final BinaryTransformer transformer) {
+	private JsonObject getReferenceTo(final Object referedToObject, final DatatypeTransformer transformer) {
 		if (null == referedToObject) {
 			return null;
 		}
 		final HJsonTransformerDefault hjt = (HJsonTransformerDefault) transformer;
-		try {
-			final List<String> path = this.createPath(hjt.getJavaRoot(), referedToObject);
-			if (null == path) {
-				final JsonObject reference = new JsonObject();
-				final String refStr = "<Unknown reference>";
-				reference.add("$type", "Reference");
-				reference.add("$ref", refStr);
-				return reference;
-			} else {
-				final JsonObject reference = new JsonObject();
-				final String refStr = "#/" + Seq.seq(path).toString("/");
-				reference.add("$type", "Reference");
-				reference.add("$ref", refStr);
-				return reference;
-			}
-		} catch (final StackOverflowError e) {
-			throw new DatatypeException("Did you forget to mark something as a reference? Error creating reference to " + referedToObject, e);
+		final TransformMonitor monitor = hjt.getMonitor();
+		final long start = monitor.isEnabled() ? System.nanoTime() : 0;
+		final List<String> path = this.createPath(hjt.getJavaRoot(), referedToObject);
+		if (monitor.isEnabled()) {
+			monitor.referenceCreated(null == path ? -1 : path.size(), System.nanoTime() - start);
 		}
-	}
-
-	private JsonValue resolveReference(final List<String> path, final JsonValue from) {
-		if (path.isEmpty()) {
-			return from;
+		if (null == path) {
+			final JsonObject reference = new JsonObject();
+			final String refStr = "<Unknown reference>";
+			reference.add("$type", "Reference");
+			reference.add("$ref", refStr);
+			return reference;
 		} else {
-			final Tuple2<Optional<String>, Seq<String>> t = Seq.seq(path).splitAtHead();
-			final String head = t.v1().get();
-			final List<String> tail = t.v2().toList();
-
-			if (from.isArray()) {
-				final int index = Integer.parseInt(head);
-				final JsonValue v = from.asArray().get(index);
-				return this.resolveReference(tail, v);
-			} else if (from.isObject()) {
-				final JsonObject jo = from.asObject();
-				final String type = null == jo.get("$type") ? null : jo.get("$type").asString();
-				if (null != type && Objects.equals("Set", type)) {
-					return this.resolveReference(path, jo.get("$elements"));
-				} else if (null != type && Objects.equals("List", type)) {
-					return this.resolveReference(path, jo.get("$elements"));
-				} else if (null != type && Objects.equals("Map", type)) {
-					throw new UnsupportedOperationException(); // TODO:
-				} else if (null != type && Objects.equals("Enum", type)) {
-					return null;
-				} else if (null != type && Objects.equals("Reference", type)) {
-					return null;
-				} else {
-					final JsonValue v = from.asObject().get(head);
-					return this.resolveReference(tail, v);
-				}
-			} else {
-				return null;
-			}
+			final JsonObject reference = new JsonObject();
+			final String refStr = "#/" + String.join("/", path);
+			reference.add("$type", "Reference");
+			reference.add("$ref", refStr);
+			return reference;
 		}
 	}
 
-	private JsonValue resolveReference(final JsonObject referenceObject, final BinaryTransformer transformer) {
+	private JsonValue resolveReference(final JsonObject referenceObject, final DatatypeTransformer transformer) {
 		if (null != referenceObject.get("$ref")) {
 			final String pathStr = referenceObject.get("$ref").asString();
 			if (pathStr.startsWith("#/")) {
-				final String pathStr2 = pathStr.substring(2);
-				final List<String> path = pathStr2.isEmpty() ? Arrays.asList() : Arrays.asList(pathStr2.split("/"));
 				final HJsonTransformerDefault hjt = (HJsonTransformerDefault) transformer;
-				return this.resolveReference(path, hjt.getHJsonRoot());
+				final TransformMonitor monitor = hjt.getMonitor();
+				final long start = monitor.isEnabled() ? System.nanoTime() : 0;
+				final DatatypePath path = hjt.compilePath(pathStr.substring(2));
+				final JsonValue res = path.get(hjt.getHJsonRoot());
+				if (monitor.isEnabled()) {
+					monitor.referenceResolved(path.size(), System.nanoTime() - start);
+				}
+				return res;
 			} else {
-				// throw new TransformException("$ref is not a valid Json Path expression: " + pathStr, null);
+				// throw new DatatypeException("$ref is not a valid Json Path expression: " + pathStr, null);
 				// TODO: need to log a warning really!
 				return null;
 			}
 		} else {
-			throw new TransformException("JsonObject is not a reference: " + referenceObject.toString(), null);
+			throw new DatatypeException("JsonObject is not a reference: " + referenceObject.toString(), null);
 		}
 	}
 
-	private void setValueRight2Left(final Object left, final DatatypeProperty pi, final JsonValue rightValue, final BinaryTransformer transformer) {
-		if (List.class.isAssignableFrom(pi.getType())) {
-			final List leftValue = transformer.transformRight2Left((Class<BinaryRule<List, JsonValue>>) (Object) List2JsonArray.class, rightValue);
+	/**
+	 * numeric primitive properties are read and written without boxing the value or finding a rule for it
+	 *
+	 * @return true if the property is a numeric primitive and has been added to right
+	 */
+	private boolean addNumberLeft2Right(final Object left, final DatatypeProperty pi, final JsonObject right) {
+		final Class<?> type = pi.getType();
+		if (int.class == type || long.class == type) {
+			right.add(pi.getName(), pi.getLongFrom(left));
+			return true;
+		} else if (double.class == type) {
+			right.add(pi.getName(), pi.getDoubleFrom(left));
+			return true;
+		} else if (float.class == type) {
+			right.add(pi.getName(), (float) pi.getDoubleFrom(left));
+			return true;
+		} else {
+			return false;
+		}
+	}
+
+	/**
+	 * when compact typed values are enabled, an Instant or URI member is written without a $type wrapper, as its declared type says what it is
+	 */
+	private JsonValue memberLeft2Right(final DatatypeProperty pi, final Object value, final DatatypeTransformer transformer) {
+		if (null != value && ((HJsonTransformerDefault) transformer).isCompactTypedValues()) {
+			if (Instant.class == pi.getType()) {
+				return Instant2JsonValue.compact((Instant) value);
+			} else if (URI.class == pi.getType()) {
+				return JsonValue.valueOf(value.toString());
+			}
+		}
+		((HJsonTransformerDefault) transformer).setWriteSegment(pi.getName());
+		return transformer.transformLeft2Right((Class<DatatypeRule<Object, JsonValue>>) (Object) Object2JsonValue.class, value);
+	}
+
+	private static boolean isNumberType(final Class<?> type) {
+		return int.class == type || Integer.class == type || long.class == type || Long.class == type || double.class == type || Double.class == type
+				|| float.class == type || Float.class == type;
+	}
+
+	/**
+	 * @return true if value is in a form that is decoded directly to type, a number for a numeric type or the compact form of an Instant or URI
+	 */
+	private static boolean isTypedValue(final Class<?> type, final JsonValue value) {
+		if (value.isNumber()) {
+			return Datatype2HJsonObject.isNumberType(type) || Instant.class == type;
+		} else if (value.isArray()) {
+			return Instant.class == type && Instant2JsonValue.isCompact(value);
+		} else if (value.isString()) {
+			return URI.class == type;
+		} else {
+			return false;
+		}
+	}
+
+	/**
+	 * decode a value as the declared type of the member it is for, rather than trying each rule in turn
+	 */
+	private Object typedRight2Left(final DatatypeProperty pi, final JsonValue value) {
+		final Class<?> type = pi.getType();
+		if (Instant.class == type) {
+			return Instant2JsonValue.fromCompact(value);
+		} else if (URI.class == type) {
+			return URI.create(value.asString());
+		} else if (int.class == type || Integer.class == type) {
+			final long v = Datatype2HJsonObject.asLong(pi, value);
+			if (v < Integer.MIN_VALUE || v > Integer.MAX_VALUE) {
+				throw Datatype2HJsonObject.outOfRange(pi, value);
+			}
+			return (int) v;
+		} else if (long.class == type || Long.class == type) {
+			return Datatype2HJsonObject.asLong(pi, value);
+		} else if (double.class == type || Double.class == type) {
+			return value.asDouble();
+		} else if (float.class == type || Float.class == type) {
+			final double v = value.asDouble();
+			if (!Double.isInfinite(v) && Math.abs(v) > Float.MAX_VALUE) {
+				throw Datatype2HJsonObject.outOfRange(pi, value);
+			}
+			return (float) v;
+		} else {
+			throw new DatatypeException("Unable to decode " + value + " as a " + type.getName(), null);
+		}
+	}
+
+	/**
+	 * JSON numbers are held as a double, which asLong would saturate if it is out of the range of a long
+	 */
+	private static long asLong(final DatatypeProperty pi, final JsonValue value) {
+		final double v = value.asDouble();
+		if (v < -0x1p63 || v >= 0x1p63) {
+			throw Datatype2HJsonObject.outOfRange(pi, value);
+		}
+		return value.asLong();
+	}
+
+	private static DatatypeException outOfRange(final DatatypeProperty pi, final JsonValue value) {
+		return new DatatypeException("Value " + value + " is out of range for property " + pi.getName() + " of type " + pi.getType().getName(), null);
+	}
+
+	private void setValueRight2Left(final Object left, final DatatypeProperty pi, final JsonValue rightValue, final DatatypeTransformer transformer) {
+		if (null == rightValue) {
+			// e.g. a reference that could not be resolved
+			if (!pi.isContainer() && !pi.getType().isPrimitive()) {
+				pi.setValueFor(left, null);
+			}
+		} else if ((int.class == pi.getType() || long.class == pi.getType()) && rightValue.isNumber()) {
+			pi.setLongFor(left, Datatype2HJsonObject.asLong(pi, rightValue));
+		} else if ((double.class == pi.getType() || float.class == pi.getType()) && rightValue.isNumber()) {
+			pi.setDoubleFor(left, rightValue.asDouble());
+		} else if (Datatype2HJsonObject.isTypedValue(pi.getType(), rightValue)) {
+			pi.setValueFor(left, this.typedRight2Left(pi, rightValue));
+		} else if (List.class.isAssignableFrom(pi.getType())) {
+			final List leftValue = transformer.transformRight2Left((Class<DatatypeRule<List, JsonValue>>) (Object) List2JsonArray.class, rightValue);
 			pi.setValueFor(left, leftValue);
 		} else if (Set.class.isAssignableFrom(pi.getType())) {
-			final Set leftValue = transformer.transformRight2Left((Class<BinaryRule<Set, JsonValue>>) (Object) Set2JsonArray.class, rightValue);
+			final Set leftValue = transformer.transformRight2Left((Class<DatatypeRule<Set, JsonValue>>) (Object) Set2JsonArray.class, rightValue);
 			pi.setValueFor(left, leftValue);
 
 		} else if (Map.class.isAssignableFrom(pi.getType())) {
-			final Map leftValue = transformer.transformRight2Left((Class<BinaryRule<Map, JsonObject>>) (Object) Map2JsonObject.class, rightValue.asObject());
+			final Map leftValue = transformer.transformRight2Left((Class<DatatypeRule<Map, JsonObject>>) (Object) Map2JsonObject.class, rightValue.asObject());
 			pi.setValueFor(left, leftValue);
 		} else {
-			final Object leftValue = transformer.transformRight2Left((Class<BinaryRule<Object, JsonValue>>) (Object) Object2JsonValue.class, rightValue);
+			final Object leftValue = transformer.transformRight2Left((Class<DatatypeRule<Object, JsonValue>>) (Object) Object2JsonValue.class, rightValue);
 			pi.setValueFor(left, leftValue);
 		}
 	}
 
-	private void setRegistry(final BinaryTransformer transformer) {
+	private void setRegistry(final DatatypeTransformer transformer) {
 		final HJsonTransformerDefault trans = (HJsonTransformerDefault) transformer;
 		this.registry = trans.getDatatypeRegistry();
 	}
@@ -193,7 +244,7 @@ public class Datatype2HJsonObject extends Object2JsonValue<Object, JsonObject> i
 		return this.registry.getDatatypeInfo(class_);
 	}
 
-	private JsonValue createContainerOfReferences(final BinaryTransformer transformer, final DatatypeProperty pi, final Object container) {
+	private JsonValue createContainerOfReferences(final DatatypeTransformer transformer, final DatatypeProperty pi, final Object container) {
 		if (Set.class.isAssignableFrom(pi.getType())) {
 			final Set<?> left = (Set<?>) container;
 			final JsonObject right = new JsonObject();
@@ -227,7 +278,7 @@ public class Datatype2HJsonObject extends Object2JsonValue<Object, JsonObject> i
 	}
 
 	@Override
-	public boolean isValidForLeft2Right(final Object left, final BinaryTransformer transformer) {
+	public boolean isValidForLeft2Right(final Object left, final DatatypeTransformer transformer) {
 		if (null == left) {
 			return false;
 		}
@@ -236,7 +287,7 @@ public class Datatype2HJsonObject extends Object2JsonValue<Object, JsonObject> i
 	}
 
 	@Override
-	public boolean isValidForRight2Left(final JsonObject right, final BinaryTransformer transformer) {
+	public boolean isValidForRight2Left(final JsonObject right, final DatatypeTransformer transformer) {
 		if (null == right) {
 			return false;
 		}
@@ -244,28 +295,41 @@ public class Datatype2HJsonObject extends Object2JsonValue<Object, JsonObject> i
 	}
 
 	@Override
-	public boolean isAMatch(final Object left, final JsonObject right, final BinaryTransformer transformer) {
-		final String n_left = left.getClass().getName();
-		final String n_right = right.getString("$class", "<Undefined>"); // should never be undefined due to isValid check
-		return Objects.equals(n_left, n_right);
+	public boolean isAMatch(final Object left, final JsonObject right, final DatatypeTransformer transformer) {
+		return left.getClass() == ((HJsonTransformerDefault) transformer).getClassFor(right.get("$class"));
+	}
+
+	private boolean isMemoizable(final DatatypeInfo datatype, final DatatypeTransformer transformer) {
+		final HJsonTransformerDefault hjt = (HJsonTransformerDefault) transformer;
+		return hjt.isMemoizeImmutable() && datatype.isImmutable() && !datatype.getPropertyIdentity().isEmpty();
 	}
 
 	@Override
-	public JsonObject constructLeft2Right(final Object left, final BinaryTransformer transformer) {
+	public JsonObject constructLeft2Right(final Object left, final DatatypeTransformer transformer) {
 		this.setRegistry(transformer);
+		final DatatypeInfo datatype = this.getDatatypeInfo(left.getClass());
+		if (this.isMemoizable(datatype, transformer)) {
+			final JsonObject memo = ((HJsonTransformerDefault) transformer).getMemoized(this.registry.getIdentity(left));
+			if (null != memo) {
+				return memo;
+			}
+		}
+
 		final JsonObject right = new JsonObject();
-		right.add("$class", left.getClass().getName());
+		right.add("$class", ((HJsonTransformerDefault) transformer).getClassTag(left.getClass()));
 
-		final DatatypeInfo datatype = this.getDatatypeInfo(left.getClass());
 		for (final DatatypeProperty pi : datatype.getPropertyIdentity()) {
+			if (this.addNumberLeft2Right(left, pi, right)) {
+				continue;
+			}
 			final Object value = pi.getValueFrom(left); // RT.wrap(() -> m.invoke(left));
-			final JsonValue memberValue = transformer.transformLeft2Right((Class<BinaryRule<Object, JsonValue>>) (Object) Object2JsonValue.class, value);
 			if (pi.isReference()) {
 				final JsonObject reference = this.getReferenceTo(value, transformer);
 				if (null != reference) {
 					right.add(pi.getName(), reference);
 				}
 			} else {
+				final JsonValue memberValue = this.memberLeft2Right(pi, value, transformer);
 				right.add(pi.getName(), memberValue);
 			}
 		}
@@ -274,11 +338,9 @@ public class Datatype2HJsonObject extends Object2JsonValue<Object, JsonObject> i
 	}
 
 	@Override
-	public Object constructRight2Left(final JsonObject right, final BinaryTransformer transformer) {
+	public Object constructRight2Left(final JsonObject right, final DatatypeTransformer transformer) {
 		this.setRegistry(transformer);
-		final String className = right.getString("$class", "<Undefined>"); // should never be undefined due to isValid check
-
-		final Class<?> leftClass = RT.wrap(() -> Class.forName(className));
+		final Class<?> leftClass = ((HJsonTransformerDefault) transformer).getClassFor(right.get("$class")); // never undefined due to isValid check
 		final DatatypeInfo datatype = this.getDatatypeInfo(leftClass);
 
 		final List<Class<?>> parameterTypes = new ArrayList<>();
@@ -287,13 +349,15 @@ public class Datatype2HJsonObject extends Object2JsonValue<Object, JsonObject> i
 		for (final DatatypeProperty pi : datatype.getPropertyIdentity()) {
 			parameterTypes.add(pi.getType());
 			final JsonValue mv = right.get(pi.getName());
-			if (!pi.isReference()) { // not a reference
-				final Object v = transformer.transformRight2Left((Class<BinaryRule<Object, JsonValue>>) (Object) Object2JsonValue.class, mv);
+			if (null != mv && Datatype2HJsonObject.isTypedValue(pi.getType(), mv)) {
+				initargs.add(this.typedRight2Left(pi, mv));
+			} else if (!pi.isReference()) { // not a reference
+				final Object v = transformer.transformRight2Left((Class<DatatypeRule<Object, JsonValue>>) (Object) Object2JsonValue.class, mv);
 				initargs.add(v);
 			} else {
 				if (null != mv) {
 					final JsonValue rv = this.resolveReference(mv.asObject(), transformer);
-					final Object v = transformer.transformRight2Left((Class<BinaryRule<Object, JsonValue>>) (Object) Object2JsonValue.class, rv);
+					final Object v = transformer.transformRight2Left((Class<DatatypeRule<Object, JsonValue>>) (Object) Object2JsonValue.class, rv);
 					initargs.add(v);
 				} else {
 					// use null value for reference
@@ -302,19 +366,45 @@ public class Datatype2HJsonObject extends Object2JsonValue<Object, JsonObject> i
 			}
 		}
 
+		final HJsonTransformerDefault hjt = (HJsonTransformerDefault) transformer;
+		final DatatypeIdentity identity;
+		if (null != hjt.getCanonicalMap() && !initargs.isEmpty()) {
+			identity = new DatatypeIdentity(leftClass, initargs.toArray());
+			final Object canonical = hjt.reuseCanonical(identity);
+			if (null != canonical) {
+				return canonical;
+			}
+		} else {
+			identity = null;
+		}
+
 		final Object left = RT.wrap(() -> {
-			final Constructor<?> cons = Class.forName(className).getConstructor(parameterTypes.toArray(new Class<?>[parameterTypes.size()]));
+			final Constructor<?> cons = leftClass.getConstructor(parameterTypes.toArray(new Class<?>[parameterTypes.size()]));
 			return cons.newInstance(initargs.toArray(new Object[initargs.size()]));
 		});
 
+		if (null != identity) {
+			// published by the transformer after updateRight2Left, so that other threads never see it partly populated
+			hjt.deferCanonical(identity, left);
+		}
 		return left;
 	}
 
 	@Override
-	public void updateLeft2Right(final Object left, final JsonObject right, final BinaryTransformer transformer) {
+	public void updateLeft2Right(final Object left, final JsonObject right, final DatatypeTransformer transformer) {
 		this.setRegistry(transformer);
+		final HJsonTransformerDefault hjt = (HJsonTransformerDefault) transformer;
+		if (hjt.isMemoized(right)) {
+			return; // already complete
+		}
 		final DatatypeInfo datatype = this.getDatatypeInfo(left.getClass());
 		for (final DatatypeProperty pi : datatype.getProperty().values()) {
+			if (pi.isIdentity()) {
+				continue; // added by constructLeft2Right
+			}
+			if (this.addNumberLeft2Right(left, pi, right)) {
+				continue;
+			}
 			final Object value = pi.getValueFrom(left);
 			boolean includeIt = null != value;
 			if (value instanceof Collection && ((Collection) value).isEmpty()) {
@@ -332,16 +422,23 @@ public class Datatype2HJsonObject extends Object2JsonValue<Object, JsonObject> i
 						}
 					}
 				} else {
-					final JsonValue memberValue = transformer.transformLeft2Right((Class<BinaryRule<Object, JsonValue>>) (Object) Object2JsonValue.class, value);
+					final JsonValue memberValue = this.memberLeft2Right(pi, value, transformer);
 					right.add(pi.getName(), memberValue);
 				}
 			}
 		}
+		if (this.isMemoizable(datatype, transformer)) {
+			hjt.memoize(this.registry.getIdentity(left), right);
+		}
 	}
 
 	@Override
-	public void updateRight2Left(final Object left, final JsonObject right, final BinaryTransformer transformer) {
+	public void updateRight2Left(final Object left, final JsonObject right, final DatatypeTransformer transformer) {
 		this.setRegistry(transformer);
+		final HJsonTransformerDefault hjt = (HJsonTransformerDefault) transformer;
+		if (hjt.isCanonicalReused(left)) {
+			return; // already populated when first decoded
+		}
 		final DatatypeInfo datatype = this.getDatatypeInfo(left.getClass());
 		for (final DatatypeProperty pi : datatype.getProperty().values()) {
 			if (pi.isIdentity()) {
@@ -349,12 +446,16 @@ public class Datatype2HJsonObject extends Object2JsonValue<Object, JsonObject> i
 			} else {
 				final JsonValue memberValue = right.get(pi.getName());
 				if (null != memberValue) {
-					if (pi.isReference()) {
-						final JsonValue rv = this.resolveReference(memberValue.asObject(), transformer);
-						this.setValueRight2Left(left, pi, rv, transformer);
-					} else {
-						this.setValueRight2Left(left, pi, memberValue, transformer);
+					hjt.pushProjectionPath(pi.getName());
+					if (hjt.isInProjection()) {
+						if (pi.isReference()) {
+							final JsonValue rv = this.resolveReference(memberValue.asObject(), transformer);
+							this.setValueRight2Left(left, pi, rv, transformer);
+						} else {
+							this.setValueRight2Left(left, pi, memberValue, transformer);
+						}
 					}
+					hjt.popProjectionPath();
 				}
 			}
 		}
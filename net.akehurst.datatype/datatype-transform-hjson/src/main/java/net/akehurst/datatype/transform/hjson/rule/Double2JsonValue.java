@@ -20,47 +20,42 @@ import java.util.Objects;
 
 import org.hjson.JsonValue;
 
-import net.akehurst.transform.binary.api.BinaryTransformer;
+import net.akehurst.datatype.common.transform.DatatypeTransformer;
 
 public class Double2JsonValue extends Object2JsonValue<Double, JsonValue> {
 
 	@Override
-	public boolean isValidForLeft2Right(final Double left, final BinaryTransformer transformer) {
+	public boolean isValidForLeft2Right(final Double left, final DatatypeTransformer transformer) {
 		return true;
 	}
 
 	@Override
-	public boolean isValidForRight2Left(final JsonValue right, final BinaryTransformer transformer) {
-		if (right.isNumber()) {
-			final double v = right.asDouble(); // TODO: distinguish from Float!
-			return v == Math.round(v);
-		} else {
-			return false;
-		}
+	public boolean isValidForRight2Left(final JsonValue right, final DatatypeTransformer transformer) {
+		return right.isNumber();
 	}
 
 	@Override
-	public boolean isAMatch(final Double left, final JsonValue right, final BinaryTransformer transformer) {
+	public boolean isAMatch(final Double left, final JsonValue right, final DatatypeTransformer transformer) {
 		return Objects.equals(left, right.asDouble());
 	}
 
 	@Override
-	public JsonValue constructLeft2Right(final Double left, final BinaryTransformer transformer) {
+	public JsonValue constructLeft2Right(final Double left, final DatatypeTransformer transformer) {
 		return JsonValue.valueOf(left);
 	}
 
 	@Override
-	public Double constructRight2Left(final JsonValue right, final BinaryTransformer transformer) {
+	public Double constructRight2Left(final JsonValue right, final DatatypeTransformer transformer) {
 		return right.asDouble();
 	}
 
 	@Override
-	public void updateLeft2Right(final Double left, final JsonValue right, final BinaryTransformer transformer) {
+	public void updateLeft2Right(final Double left, final JsonValue right, final DatatypeTransformer transformer) {
 
 	}
 
 	@Override
-	public void updateRight2Left(final Double left, final JsonValue right, final BinaryTransformer transformer) {
+	public void updateRight2Left(final Double left, final JsonValue right, final DatatypeTransformer transformer) {
 
 	}
 
@@ -20,49 +20,49 @@ import java.util.Objects;
 
 import org.hjson.JsonObject;
 
-import net.akehurst.transform.binary.api.BinaryTransformer;
+import net.akehurst.datatype.common.transform.DatatypeTransformer;
+import net.akehurst.datatype.transform.hjson.HJsonTransformerDefault;
 
 public class Enum2JsonValue extends Object2JsonValue<Enum<?>, JsonObject> {
 
     @Override
-    public boolean isValidForLeft2Right(final Enum<?> left, final BinaryTransformer transformer) {
+    public boolean isValidForLeft2Right(final Enum<?> left, final DatatypeTransformer transformer) {
         return true;
     }
 
     @Override
-    public boolean isValidForRight2Left(final JsonObject right, final BinaryTransformer transformer) {
+    public boolean isValidForRight2Left(final JsonObject right, final DatatypeTransformer transformer) {
         return Objects.equals("Enum", right.getString("$type", ""));
     }
 
     @Override
-    public boolean isAMatch(final Enum<?> left, final JsonObject right, final BinaryTransformer transformer) {
+    public boolean isAMatch(final Enum<?> left, final JsonObject right, final DatatypeTransformer transformer) {
         return Objects.equals(left.getClass().getName() + "." + left.toString(), right.asString());
     }
 
     @Override
-    public JsonObject constructLeft2Right(final Enum<?> left, final BinaryTransformer transformer) {
+    public JsonObject constructLeft2Right(final Enum<?> left, final DatatypeTransformer transformer) {
         final JsonObject right = new JsonObject();
         right.add("$type", "Enum");
-        right.add("$class", left.getClass().getName());
+        right.add("$class", ((HJsonTransformerDefault) transformer).getClassTag(left.getDeclaringClass()));
         right.add("$value", left.toString());
         return right;
     }
 
     @Override
-    public Enum<?> constructRight2Left(final JsonObject right, final BinaryTransformer transformer) {
+    public Enum<?> constructRight2Left(final JsonObject right, final DatatypeTransformer transformer) {
         final String valueStr = right.getString("$value", "");
-        final String className = right.getString("$class", "");
-        final Class<?> enumType = RT.wrap(() -> Class.forName(className));
+        final Class<?> enumType = ((HJsonTransformerDefault) transformer).getClassFor(right.get("$class"));
         return Enum.valueOf((Class) enumType, valueStr);
     }
 
     @Override
-    public void updateLeft2Right(final Enum<?> left, final JsonObject right, final BinaryTransformer transformer) {
+    public void updateLeft2Right(final Enum<?> left, final JsonObject right, final DatatypeTransformer transformer) {
 
     }
 
     @Override
-    public void updateRight2Left(final Enum<?> left, final JsonObject right, final BinaryTransformer transformer) {
+    public void updateRight2Left(final Enum<?> left, final JsonObject right, final DatatypeTransformer transformer) {
 
     }
 
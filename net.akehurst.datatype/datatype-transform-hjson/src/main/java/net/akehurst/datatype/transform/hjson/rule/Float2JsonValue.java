@@ -20,47 +20,42 @@ import java.util.Objects;
 
 import org.hjson.JsonValue;
 
-import net.akehurst.transform.binary.api.BinaryTransformer;
+import net.akehurst.datatype.common.transform.DatatypeTransformer;
 
 public class Float2JsonValue extends Object2JsonValue<Float, JsonValue> {
 
 	@Override
-	public boolean isValidForLeft2Right(final Float left, final BinaryTransformer transformer) {
+	public boolean isValidForLeft2Right(final Float left, final DatatypeTransformer transformer) {
 		return true;
 	}
 
 	@Override
-	public boolean isValidForRight2Left(final JsonValue right, final BinaryTransformer transformer) {
-		if (right.isNumber()) {
-			final float v = right.asFloat(); // TODO: distinguish from Double!
-			return v == Math.round(v);
-		} else {
-			return false;
-		}
+	public boolean isValidForRight2Left(final JsonValue right, final DatatypeTransformer transformer) {
+		return right.isNumber();
 	}
 
 	@Override
-	public boolean isAMatch(final Float left, final JsonValue right, final BinaryTransformer transformer) {
+	public boolean isAMatch(final Float left, final JsonValue right, final DatatypeTransformer transformer) {
 		return Objects.equals(left, right.asFloat());
 	}
 
 	@Override
-	public JsonValue constructLeft2Right(final Float left, final BinaryTransformer transformer) {
+	public JsonValue constructLeft2Right(final Float left, final DatatypeTransformer transformer) {
 		return JsonValue.valueOf(left);
 	}
 
 	@Override
-	public Float constructRight2Left(final JsonValue right, final BinaryTransformer transformer) {
+	public Float constructRight2Left(final JsonValue right, final DatatypeTransformer transformer) {
 		return right.asFloat();
 	}
 
 	@Override
-	public void updateLeft2Right(final Float left, final JsonValue right, final BinaryTransformer transformer) {
+	public void updateLeft2Right(final Float left, final JsonValue right, final DatatypeTransformer transformer) {
 
 	}
 
 	@Override
-	public void updateRight2Left(final Float left, final JsonValue right, final BinaryTransformer transformer) {
+	public void updateRight2Left(final Float left, final JsonValue right, final DatatypeTransformer transformer) {
 
 	}
 
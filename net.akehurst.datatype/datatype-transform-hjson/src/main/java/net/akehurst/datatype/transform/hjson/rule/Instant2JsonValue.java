@@ -19,47 +19,85 @@ package net.akehurst.datatype.transform.hjson.rule;
 import java.time.Instant;
 import java.util.Objects;
 
+import org.hjson.JsonArray;
 import org.hjson.JsonObject;
+import org.hjson.JsonValue;
 
-import net.akehurst.transform.binary.api.BinaryTransformer;
+import net.akehurst.datatype.common.transform.DatatypeTransformer;
 
+/**
+ * An Instant is written as { $type: "Instant", $value: epoch millis, $nanos: nanos within the milli }, $nanos being omitted when zero. A member
+ * declared as an Instant may instead be written in compact form, see {@link #compact(Instant)}.
+ */
 public class Instant2JsonValue extends Object2JsonValue<Instant, JsonObject> {
 
+	private static final int NANOS_PER_MILLI = 1_000_000;
+
+	/**
+	 * @return the epoch second, or [epoch second, nano of second] if the nanos are not zero
+	 */
+	static JsonValue compact(final Instant value) {
+		if (0 == value.getNano()) {
+			return JsonValue.valueOf(value.getEpochSecond());
+		} else {
+			return new JsonArray().add(value.getEpochSecond()).add(value.getNano());
+		}
+	}
+
+	static boolean isCompact(final JsonValue value) {
+		return value.isNumber() || value.isArray() && 2 == value.asArray().size();
+	}
+
+	static Instant fromCompact(final JsonValue value) {
+		if (value.isNumber()) {
+			return Instant.ofEpochSecond(value.asLong());
+		} else {
+			final JsonArray a = value.asArray();
+			return Instant.ofEpochSecond(a.get(0).asLong(), a.get(1).asLong());
+		}
+	}
+
 	@Override
-	public boolean isValidForLeft2Right(final Instant left, final BinaryTransformer transformer) {
+	public boolean isValidForLeft2Right(final Instant left, final DatatypeTransformer transformer) {
 		return true;
 	}
 
 	@Override
-	public boolean isValidForRight2Left(final JsonObject right, final BinaryTransformer transformer) {
+	public boolean isValidForRight2Left(final JsonObject right, final DatatypeTransformer transformer) {
 		return Objects.equals("Instant", right.getString("$type", ""));
 	}
 
 	@Override
-	public boolean isAMatch(final Instant left, final JsonObject right, final BinaryTransformer transformer) {
-		return Objects.equals(left, Instant.parse(right.getString("$value", "")));
+	public boolean isAMatch(final Instant left, final JsonObject right, final DatatypeTransformer transformer) {
+		return Objects.equals(left, this.constructRight2Left(right, transformer));
 	}
 
 	@Override
-	public JsonObject constructLeft2Right(final Instant left, final BinaryTransformer transformer) {
+	public JsonObject constructLeft2Right(final Instant left, final DatatypeTransformer transformer) {
 		final JsonObject right = new JsonObject();
 		right.add("$type", "Instant");
 		return right;
 	}
 
 	@Override
-	public Instant constructRight2Left(final JsonObject right, final BinaryTransformer transformer) {
+	public Instant constructRight2Left(final JsonObject right, final DatatypeTransformer transformer) {
 		final long epochMilli = right.getLong("$value", 0);
-		return Instant.ofEpochMilli(epochMilli); // parse(right.getString("$value", ""));
+		final long nanos = right.getLong("$nanos", 0);
+		return 0 == nanos ? Instant.ofEpochMilli(epochMilli) : Instant.ofEpochMilli(epochMilli).plusNanos(nanos);
 	}
 
 	@Override
-	public void updateLeft2Right(final Instant left, final JsonObject right, final BinaryTransformer transformer) {
+	public void updateLeft2Right(final Instant left, final JsonObject right, final DatatypeTransformer transformer) {
 		right.add("$value", left.toEpochMilli());
+		// toEpochMilli rounds towards negative infinity, so the remainder is never negative
+		final int nanos = left.getNano() % Instant2JsonValue.NANOS_PER_MILLI;
+		if (0 != nanos) {
+			right.add("$nanos", nanos);
+		}
 	}
 
 	@Override
-	public void updateRight2Left(final Instant left, final JsonObject right, final BinaryTransformer transformer) {
+	public void updateRight2Left(final Instant left, final JsonObject right, final DatatypeTransformer transformer) {
 
 	}
 
@@ -20,47 +20,48 @@ import java.util.Objects;
 
 import org.hjson.JsonValue;
 
-import net.akehurst.transform.binary.api.BinaryTransformer;
+import net.akehurst.datatype.common.transform.DatatypeTransformer;
 
 public class Integer2JsonValue extends Object2JsonValue<Integer, JsonValue> {
 
 	@Override
-	public boolean isValidForLeft2Right(final Integer left, final BinaryTransformer transformer) {
+	public boolean isValidForLeft2Right(final Integer left, final DatatypeTransformer transformer) {
 		return true;
 	}
 
 	@Override
-	public boolean isValidForRight2Left(final JsonValue right, final BinaryTransformer transformer) {
+	public boolean isValidForRight2Left(final JsonValue right, final DatatypeTransformer transformer) {
 		if (right.isNumber()) {
-			final Integer v = right.asInt();
-			return v == Math.round(v);
+			// a whole number in the range of an int
+			final double v = right.asDouble();
+			return v == Math.rint(v) && v >= Integer.MIN_VALUE && v <= Integer.MAX_VALUE;
 		} else {
 			return false;
 		}
 	}
 
 	@Override
-	public boolean isAMatch(final Integer left, final JsonValue right, final BinaryTransformer transformer) {
+	public boolean isAMatch(final Integer left, final JsonValue right, final DatatypeTransformer transformer) {
 		return Objects.equals(left, right.asInt());
 	}
 
 	@Override
-	public JsonValue constructLeft2Right(final Integer left, final BinaryTransformer transformer) {
+	public JsonValue constructLeft2Right(final Integer left, final DatatypeTransformer transformer) {
 		return JsonValue.valueOf(left);
 	}
 
 	@Override
-	public Integer constructRight2Left(final JsonValue right, final BinaryTransformer transformer) {
+	public Integer constructRight2Left(final JsonValue right, final DatatypeTransformer transformer) {
 		return right.asInt();
 	}
 
 	@Override
-	public void updateLeft2Right(final Integer left, final JsonValue right, final BinaryTransformer transformer) {
+	public void updateLeft2Right(final Integer left, final JsonValue right, final DatatypeTransformer transformer) {
 
 	}
 
 	@Override
-	public void updateRight2Left(final Integer left, final JsonValue right, final BinaryTransformer transformer) {
+	public void updateRight2Left(final Integer left, final JsonValue right, final DatatypeTransformer transformer) {
 
 	}
 
@@ -20,48 +20,48 @@ import java.util.Objects;
 
 import org.hjson.JsonValue;
 
-import net.akehurst.transform.binary.api.BinaryTransformer;
+import net.akehurst.datatype.common.transform.DatatypeTransformer;
 
 public class Long2JsonValue extends Object2JsonValue<Long, JsonValue> {
 
 	@Override
-	public boolean isValidForLeft2Right(final Long left, final BinaryTransformer transformer) {
+	public boolean isValidForLeft2Right(final Long left, final DatatypeTransformer transformer) {
 		return true;
 	}
 
 	@Override
-	public boolean isValidForRight2Left(final JsonValue right, final BinaryTransformer transformer) {
-		// TODO: Integer vs long ?
+	public boolean isValidForRight2Left(final JsonValue right, final DatatypeTransformer transformer) {
 		if (right.isNumber()) {
-			final Long v = right.asLong();
-			return v == Math.round(v);
+			// a whole number in the range of a long
+			final double v = right.asDouble();
+			return v == Math.rint(v) && v >= -0x1p63 && v < 0x1p63;
 		} else {
 			return false;
 		}
 	}
 
 	@Override
-	public boolean isAMatch(final Long left, final JsonValue right, final BinaryTransformer transformer) {
+	public boolean isAMatch(final Long left, final JsonValue right, final DatatypeTransformer transformer) {
 		return Objects.equals(left, right.asLong());
 	}
 
 	@Override
-	public JsonValue constructLeft2Right(final Long left, final BinaryTransformer transformer) {
+	public JsonValue constructLeft2Right(final Long left, final DatatypeTransformer transformer) {
 		return JsonValue.valueOf(left);
 	}
 
 	@Override
-	public Long constructRight2Left(final JsonValue right, final BinaryTransformer transformer) {
+	public Long constructRight2Left(final JsonValue right, final DatatypeTransformer transformer) {
 		return right.asLong();
 	}
 
 	@Override
-	public void updateLeft2Right(final Long left, final JsonValue right, final BinaryTransformer transformer) {
+	public void updateLeft2Right(final Long left, final JsonValue right, final DatatypeTransformer transformer) {
 
 	}
 
 	@Override
-	public void updateRight2Left(final Long left, final JsonValue right, final BinaryTransformer transformer) {
+	public void updateRight2Left(final Long left, final JsonValue right, final DatatypeTransformer transformer) {
 
 	}
 
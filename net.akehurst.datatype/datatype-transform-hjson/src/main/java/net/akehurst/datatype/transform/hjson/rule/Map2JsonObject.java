@@ -13,7 +13,6 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package net.akehurst.datatype.transform.hjson.rule;
 
 import java.util.HashMap;
@@ -24,60 +23,155 @@ import org.hjson.JsonArray;
 import org.hjson.JsonObject;
 import org.hjson.JsonValue;
 
-import net.akehurst.transform.binary.api.BinaryRule;
-import net.akehurst.transform.binary.api.BinaryTransformer;
+import net.akehurst.datatype.common.model.DatatypePath;
+import net.akehurst.datatype.common.transform.DatatypeRule;
+import net.akehurst.datatype.common.transform.DatatypeTransformer;
+import net.akehurst.datatype.transform.hjson.HJsonTransformerDefault;
 
 public class Map2JsonObject extends Object2JsonValue<Map<Object, Object>, JsonObject> {
 
     @Override
-    public boolean isValidForLeft2Right(final Map<Object, Object> left, final BinaryTransformer transformer) {
+    public boolean isValidForLeft2Right(final Map<Object, Object> left, final DatatypeTransformer transformer) {
         return null != left;
     }
 
     @Override
-    public boolean isValidForRight2Left(final JsonObject right, final BinaryTransformer transformer) {
+    public boolean isValidForRight2Left(final JsonObject right, final DatatypeTransformer transformer) {
         return null != right && Objects.equals("Map", right.getString("$type", ""));
     }
 
     @Override
-    public boolean isAMatch(final Map<Object, Object> left, final JsonObject right, final BinaryTransformer transformer) {
+    public boolean isAMatch(final Map<Object, Object> left, final JsonObject right, final DatatypeTransformer transformer) {
         return true;
     }
 
     @Override
-    public JsonObject constructLeft2Right(final Map<Object, Object> left, final BinaryTransformer transformer) {
+    public JsonObject constructLeft2Right(final Map<Object, Object> left, final DatatypeTransformer transformer) {
         final JsonObject right = new JsonObject();
         right.add("$type", "Map");
         return right;
     }
 
     @Override
-    public Map<Object, Object> constructRight2Left(final JsonObject right, final BinaryTransformer transformer) {
+    public Map<Object, Object> constructRight2Left(final JsonObject right, final DatatypeTransformer transformer) {
         return new HashMap<>();
     }
 
     @Override
-    public void updateLeft2Right(final Map<Object, Object> left, final JsonObject right, final BinaryTransformer transformer) {
-        final JsonArray elements = new JsonArray();
-        right.add("$elements", elements);
-        for (final Map.Entry<Object, Object> me : left.entrySet()) {
-            final JsonValue jk = transformer.transformLeft2Right((Class<BinaryRule<Object, JsonValue>>) (Object) Object2JsonValue.class, me.getKey());
-            final JsonValue jv = transformer.transformLeft2Right((Class<BinaryRule<Object, JsonValue>>) (Object) Object2JsonValue.class, me.getValue());
-            final JsonObject entry = new JsonObject();
-            entry.add("key", jk);
-            entry.add("value", jv);
-            elements.add(entry);
+    public void updateLeft2Right(final Map<Object, Object> left, final JsonObject right, final DatatypeTransformer transformer) {
+        final HJsonTransformerDefault hjt = (HJsonTransformerDefault) transformer;
+        int index = 0;
+        if (!hjt.isCompactMaps()) {
+            final JsonArray elements = new JsonArray();
+            right.add("$elements", elements);
+            for (final Map.Entry<Object, Object> me : left.entrySet()) {
+                hjt.setWriteSegment(index);
+                final JsonValue jk = transformer.transformLeft2Right((Class<DatatypeRule<Object, JsonValue>>) (Object) Object2JsonValue.class, me.getKey());
+                hjt.setWriteSegment(DatatypePath.mapSegment(me.getKey(), index));
+                final JsonValue jv = transformer.transformLeft2Right((Class<DatatypeRule<Object, JsonValue>>) (Object) Object2JsonValue.class, me.getValue());
+                ++index;
+                final JsonObject entry = new JsonObject();
+                entry.add("key", jk);
+                entry.add("value", jv);
+                elements.add(entry);
+            }
+        } else if (this.hasNamedKeys(left)) {
+            final Class<?> keyClass = left.isEmpty() ? String.class : Map2JsonObject.keyClass(left.keySet().iterator().next());
+            if (keyClass.isEnum()) {
+                right.add("$keyClass", ((HJsonTransformerDefault) transformer).getClassTag(keyClass));
+            } else if (String.class != keyClass) {
+                right.add("$keyClass", keyClass.getSimpleName());
+            }
+            for (final Map.Entry<Object, Object> me : left.entrySet()) {
+                hjt.setWriteSegment(DatatypePath.mapSegment(me.getKey(), -1));
+                final JsonValue jv = transformer.transformLeft2Right((Class<DatatypeRule<Object, JsonValue>>) (Object) Object2JsonValue.class, me.getValue());
+                right.add(DatatypePath.mapSegment(me.getKey(), -1), jv);
+            }
+        } else {
+            final JsonArray keys = new JsonArray();
+            final JsonArray values = new JsonArray();
+            right.add("$keys", keys);
+            right.add("$values", values);
+            for (final Map.Entry<Object, Object> me : left.entrySet()) {
+                hjt.setWriteSegment(index);
+                keys.add(transformer.transformLeft2Right((Class<DatatypeRule<Object, JsonValue>>) (Object) Object2JsonValue.class, me.getKey()));
+                hjt.setWriteSegment(index);
+                values.add(transformer.transformLeft2Right((Class<DatatypeRule<Object, JsonValue>>) (Object) Object2JsonValue.class, me.getValue()));
+                ++index;
+            }
         }
-
     }
 
     @Override
-    public void updateRight2Left(final Map<Object, Object> left, final JsonObject right, final BinaryTransformer transformer) {
-        for (final JsonValue je : right.get("$elements").asArray()) {
-            final JsonObject me = je.asObject();
-            final Object k = transformer.transformRight2Left((Class<BinaryRule<Object, JsonValue>>) (Object) Object2JsonValue.class, me.get("key"));
-            final Object v = transformer.transformRight2Left((Class<BinaryRule<Object, JsonValue>>) (Object) Object2JsonValue.class, me.get("value"));
-            left.put(k, v);
+    public void updateRight2Left(final Map<Object, Object> left, final JsonObject right, final DatatypeTransformer transformer) {
+        if (null != right.get("$elements")) {
+            for (final JsonValue je : right.get("$elements").asArray()) {
+                final JsonObject me = je.asObject();
+                final Object k = transformer.transformRight2Left((Class<DatatypeRule<Object, JsonValue>>) (Object) Object2JsonValue.class, me.get("key"));
+                final Object v = transformer.transformRight2Left((Class<DatatypeRule<Object, JsonValue>>) (Object) Object2JsonValue.class, me.get("value"));
+                left.put(k, v);
+            }
+        } else if (null != right.get("$keys")) {
+            final JsonArray keys = right.get("$keys").asArray();
+            final JsonArray values = right.get("$values").asArray();
+            for (int i = 0; i < keys.size(); ++i) {
+                final Object k = transformer.transformRight2Left((Class<DatatypeRule<Object, JsonValue>>) (Object) Object2JsonValue.class, keys.get(i));
+                final Object v = transformer.transformRight2Left((Class<DatatypeRule<Object, JsonValue>>) (Object) Object2JsonValue.class, values.get(i));
+                left.put(k, v);
+            }
+        } else {
+            final JsonValue keyClass = right.get("$keyClass");
+            for (final JsonObject.Member m : right) {
+                if (!m.getName().startsWith("$")) {
+                    final Object v = transformer.transformRight2Left((Class<DatatypeRule<Object, JsonValue>>) (Object) Object2JsonValue.class, m.getValue());
+                    left.put(this.keyFromName(keyClass, m.getName(), transformer), v);
+                }
+            }
+        }
+    }
+
+    // keys all of one class, named by their value, and not mistakable for one of the $ members
+    private boolean hasNamedKeys(final Map<Object, Object> map) {
+        Class<?> keyClass = null;
+        for (final Object k : map.keySet()) {
+            if (!DatatypePath.isNamedKey(k) || null != keyClass && keyClass != Map2JsonObject.keyClass(k)) {
+                return false;
+            }
+            keyClass = Map2JsonObject.keyClass(k);
+            if (DatatypePath.mapSegment(k, -1).startsWith("$")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Class<?> keyClass(final Object key) {
+        return key instanceof Enum<?> ? ((Enum<?>) key).getDeclaringClass() : key.getClass();
+    }
+
+    private Object keyFromName(final JsonValue keyClass, final String name, final DatatypeTransformer transformer) {
+        if (null == keyClass) {
+            return name;
+        }
+        // an enum is identified by its class name or $types index, other key classes by their simple name
+        switch (keyClass.isString() ? keyClass.asString() : "") {
+            case "String":
+                return name;
+            case "Integer":
+                return Integer.valueOf(name);
+            case "Long":
+                return Long.valueOf(name);
+            case "Short":
+                return Short.valueOf(name);
+            case "Byte":
+                return Byte.valueOf(name);
+            case "Double":
+                return Double.valueOf(name);
+            case "Float":
+                return Float.valueOf(name);
+            default:
+                final Class<?> enumType = ((HJsonTransformerDefault) transformer).getClassFor(keyClass);
+                return Enum.valueOf((Class) enumType, name);
         }
     }
 
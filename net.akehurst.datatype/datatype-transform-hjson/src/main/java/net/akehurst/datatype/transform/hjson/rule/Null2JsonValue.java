@@ -18,42 +18,42 @@ package net.akehurst.datatype.transform.hjson.rule;
 
 import org.hjson.JsonValue;
 
-import net.akehurst.transform.binary.api.BinaryTransformer;
+import net.akehurst.datatype.common.transform.DatatypeTransformer;
 
 public class Null2JsonValue extends Object2JsonValue<Void, JsonValue> {
 
     @Override
-    public boolean isValidForLeft2Right(final Void left, final BinaryTransformer transformer) {
+    public boolean isValidForLeft2Right(final Void left, final DatatypeTransformer transformer) {
         return null == left;
     }
 
     @Override
-    public boolean isValidForRight2Left(final JsonValue right, final BinaryTransformer transformer) {
+    public boolean isValidForRight2Left(final JsonValue right, final DatatypeTransformer transformer) {
         return right == JsonValue.NULL;
     }
 
     @Override
-    public boolean isAMatch(final Void left, final JsonValue right, final BinaryTransformer transformer) {
+    public boolean isAMatch(final Void left, final JsonValue right, final DatatypeTransformer transformer) {
         return null == left && right == JsonValue.NULL;
     }
 
     @Override
-    public JsonValue constructLeft2Right(final Void left, final BinaryTransformer transformer) {
+    public JsonValue constructLeft2Right(final Void left, final DatatypeTransformer transformer) {
         return JsonValue.NULL;
     }
 
     @Override
-    public Void constructRight2Left(final JsonValue right, final BinaryTransformer transformer) {
+    public Void constructRight2Left(final JsonValue right, final DatatypeTransformer transformer) {
         return null;
     }
 
     @Override
-    public void updateLeft2Right(final Void left, final JsonValue right, final BinaryTransformer transformer) {
+    public void updateLeft2Right(final Void left, final JsonValue right, final DatatypeTransformer transformer) {
 
     }
 
     @Override
-    public void updateRight2Left(final Void left, final JsonValue right, final BinaryTransformer transformer) {
+    public void updateRight2Left(final Void left, final JsonValue right, final DatatypeTransformer transformer) {
 
     }
 
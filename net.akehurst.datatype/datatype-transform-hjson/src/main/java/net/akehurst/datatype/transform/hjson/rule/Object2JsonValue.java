@@ -18,8 +18,8 @@ package net.akehurst.datatype.transform.hjson.rule;
 
 import org.hjson.JsonValue;
 
-import net.akehurst.transform.binary.api.BinaryRule;
+import net.akehurst.datatype.common.transform.DatatypeRule;
 
-public abstract class Object2JsonValue<L extends Object, R extends JsonValue> implements BinaryRule<L, R> {
+public abstract class Object2JsonValue<L extends Object, R extends JsonValue> implements DatatypeRule<L, R> {
 
 }
@@ -24,54 +24,66 @@ import org.hjson.JsonArray;
 import org.hjson.JsonObject;
 import org.hjson.JsonValue;
 
-import net.akehurst.transform.binary.api.BinaryRule;
-import net.akehurst.transform.binary.api.BinaryTransformer;
+import net.akehurst.datatype.common.transform.DatatypeRule;
+import net.akehurst.datatype.common.transform.DatatypeTransformer;
+import net.akehurst.datatype.transform.hjson.HJsonTransformerDefault;
 
 public class Set2JsonArray extends Object2JsonValue<Set<Object>, JsonObject> {
 
     @Override
-    public boolean isValidForLeft2Right(final Set<Object> left, final BinaryTransformer transformer) {
+    public boolean isValidForLeft2Right(final Set<Object> left, final DatatypeTransformer transformer) {
         return null != left;
     }
 
     @Override
-    public boolean isValidForRight2Left(final JsonObject right, final BinaryTransformer transformer) {
+    public boolean isValidForRight2Left(final JsonObject right, final DatatypeTransformer transformer) {
         return null != right && Objects.equals("Set", right.getString("$type", ""));
     }
 
     @Override
-    public boolean isAMatch(final Set<Object> left, final JsonObject right, final BinaryTransformer transformer) {
+    public boolean isAMatch(final Set<Object> left, final JsonObject right, final DatatypeTransformer transformer) {
         return true;
     }
 
     @Override
-    public JsonObject constructLeft2Right(final Set<Object> left, final BinaryTransformer transformer) {
+    public JsonObject constructLeft2Right(final Set<Object> left, final DatatypeTransformer transformer) {
         final JsonObject right = new JsonObject();
         right.add("$type", "Set");
         return right;
     }
 
     @Override
-    public Set<Object> constructRight2Left(final JsonObject right, final BinaryTransformer transformer) {
+    public Set<Object> constructRight2Left(final JsonObject right, final DatatypeTransformer transformer) {
         return new HashSet<>();
     }
 
     @Override
-    public void updateLeft2Right(final Set<Object> left, final JsonObject right, final BinaryTransformer transformer) {
+    public void updateLeft2Right(final Set<Object> left, final JsonObject right, final DatatypeTransformer transformer) {
         final JsonArray elements = new JsonArray();
         right.add("$elements", elements);
+        final HJsonTransformerDefault hjt = (HJsonTransformerDefault) transformer;
+        int index = 0;
         for (final Object value : left) {
-            final JsonValue jv = transformer.transformLeft2Right((Class<BinaryRule<Object, JsonValue>>) (Object) Object2JsonValue.class, value);
+            hjt.setWriteSegment(index);
+            final JsonValue jv = transformer.transformLeft2Right((Class<DatatypeRule<Object, JsonValue>>) (Object) Object2JsonValue.class, value);
             elements.add(jv);
+            ++index;
         }
 
     }
 
     @Override
-    public void updateRight2Left(final Set<Object> left, final JsonObject right, final BinaryTransformer transformer) {
+    public void updateRight2Left(final Set<Object> left, final JsonObject right, final DatatypeTransformer transformer) {
+        final HJsonTransformerDefault hjt = (HJsonTransformerDefault) transformer;
+        int index = 0;
         for (final JsonValue jv : right.get("$elements").asArray()) {
-            final Object o = transformer.transformRight2Left((Class<BinaryRule<Object, JsonValue>>) (Object) Object2JsonValue.class, jv);
-            left.add(o);
+            hjt.pushProjectionPath(index);
+            if (hjt.isInProjection()) {
+                final Object o = transformer.transformRight2Left((Class<DatatypeRule<Object, JsonValue>>) (Object) Object2JsonValue.class, jv);
+                left.add(o);
+            }
+            hjt.popProjectionPath();
+            ++index;
         }
     }
 
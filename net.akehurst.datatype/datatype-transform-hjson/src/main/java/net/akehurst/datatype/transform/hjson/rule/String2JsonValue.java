@@ -20,42 +20,42 @@ import java.util.Objects;
 
 import org.hjson.JsonValue;
 
-import net.akehurst.transform.binary.api.BinaryTransformer;
+import net.akehurst.datatype.common.transform.DatatypeTransformer;
 
 public class String2JsonValue extends Object2JsonValue<String, JsonValue> {
 
     @Override
-    public boolean isValidForLeft2Right(final String left, final BinaryTransformer transformer) {
+    public boolean isValidForLeft2Right(final String left, final DatatypeTransformer transformer) {
         return true;
     }
 
     @Override
-    public boolean isValidForRight2Left(final JsonValue right, final BinaryTransformer transformer) {
+    public boolean isValidForRight2Left(final JsonValue right, final DatatypeTransformer transformer) {
         return right.isString();
     }
 
     @Override
-    public boolean isAMatch(final String left, final JsonValue right, final BinaryTransformer transformer) {
+    public boolean isAMatch(final String left, final JsonValue right, final DatatypeTransformer transformer) {
         return Objects.equals(left, right.asString());
     }
 
     @Override
-    public JsonValue constructLeft2Right(final String left, final BinaryTransformer transformer) {
+    public JsonValue constructLeft2Right(final String left, final DatatypeTransformer transformer) {
         return JsonValue.valueOf(left);
     }
 
     @Override
-    public String constructRight2Left(final JsonValue right, final BinaryTransformer transformer) {
+    public String constructRight2Left(final JsonValue right, final DatatypeTransformer transformer) {
         return right.asString();
     }
 
     @Override
-    public void updateLeft2Right(final String left, final JsonValue right, final BinaryTransformer transformer) {
+    public void updateLeft2Right(final String left, final JsonValue right, final DatatypeTransformer transformer) {
 
     }
 
     @Override
-    public void updateRight2Left(final String left, final JsonValue right, final BinaryTransformer transformer) {
+    public void updateRight2Left(final String left, final JsonValue right, final DatatypeTransformer transformer) {
 
     }
 
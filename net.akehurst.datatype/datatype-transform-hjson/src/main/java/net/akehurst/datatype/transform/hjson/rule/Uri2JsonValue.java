@@ -17,49 +17,48 @@
 package net.akehurst.datatype.transform.hjson.rule;
 
 import java.net.URI;
-import java.time.Instant;
 import java.util.Objects;
 
 import org.hjson.JsonObject;
 
-import net.akehurst.transform.binary.api.BinaryTransformer;
+import net.akehurst.datatype.common.transform.DatatypeTransformer;
 
 public class Uri2JsonValue extends Object2JsonValue<URI, JsonObject> {
 
     @Override
-    public boolean isValidForLeft2Right(final URI left, final BinaryTransformer transformer) {
+    public boolean isValidForLeft2Right(final URI left, final DatatypeTransformer transformer) {
         return true;
     }
 
     @Override
-    public boolean isValidForRight2Left(final JsonObject right, final BinaryTransformer transformer) {
+    public boolean isValidForRight2Left(final JsonObject right, final DatatypeTransformer transformer) {
         return Objects.equals("URI", right.getString("$type", ""));
     }
 
     @Override
-    public boolean isAMatch(final URI left, final JsonObject right, final BinaryTransformer transformer) {
-        return Objects.equals(left, Instant.parse(right.getString("$value", "")));
+    public boolean isAMatch(final URI left, final JsonObject right, final DatatypeTransformer transformer) {
+        return Objects.equals(left, this.constructRight2Left(right, transformer));
     }
 
     @Override
-    public JsonObject constructLeft2Right(final URI left, final BinaryTransformer transformer) {
+    public JsonObject constructLeft2Right(final URI left, final DatatypeTransformer transformer) {
         final JsonObject right = new JsonObject();
         right.add("$type", "URI");
         return right;
     }
 
     @Override
-    public URI constructRight2Left(final JsonObject right, final BinaryTransformer transformer) {
+    public URI constructRight2Left(final JsonObject right, final DatatypeTransformer transformer) {
         return URI.create(right.getString("$value", ""));
     }
 
     @Override
-    public void updateLeft2Right(final URI left, final JsonObject right, final BinaryTransformer transformer) {
+    public void updateLeft2Right(final URI left, final JsonObject right, final DatatypeTransformer transformer) {
         right.add("$value", left.toString());
     }
 
     @Override
-    public void updateRight2Left(final URI left, final JsonObject right, final BinaryTransformer transformer) {
+    public void updateRight2Left(final URI left, final JsonObject right, final DatatypeTransformer transformer) {
 
     }
 
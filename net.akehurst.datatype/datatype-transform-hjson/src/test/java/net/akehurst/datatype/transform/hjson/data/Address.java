@@ -21,8 +21,11 @@ import java.util.HashMap;
 import java.util.Map;
 
 import net.akehurst.datatype.annotation.Datatype;
+import net.akehurst.datatype.annotation.Identity;
+import net.akehurst.datatype.annotation.Immutable;
 
 @Datatype
+@Immutable
 public class Address {
 
     private final Instant starting;
@@ -34,4 +37,13 @@ public class Address {
         this.addressLines = new HashMap<>();
     }
 
+    @Identity
+    public Instant getStarting() {
+        return this.starting;
+    }
+
+    public Map<String, String> getAddressLines() {
+        return this.addressLines;
+    }
+
 }
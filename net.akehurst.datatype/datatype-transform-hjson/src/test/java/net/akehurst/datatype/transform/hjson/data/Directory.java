@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.transform.hjson.data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import net.akehurst.datatype.annotation.Datatype;
+import net.akehurst.datatype.annotation.Reference;
+
+@Datatype
+public class Directory {
+
+    private final Map<String, Person> byName;
+    private final Map<Contact, Person> byContact;
+    private Person owner;
+
+    public Directory() {
+        this.byName = new HashMap<>();
+        this.byContact = new HashMap<>();
+    }
+
+    public Map<String, Person> getByName() {
+        return this.byName;
+    }
+
+    public Map<Contact, Person> getByContact() {
+        return this.byContact;
+    }
+
+    @Reference
+    public Person getOwner() {
+        return this.owner;
+    }
+
+    public void setOwner(final Person value) {
+        this.owner = value;
+    }
+
+}
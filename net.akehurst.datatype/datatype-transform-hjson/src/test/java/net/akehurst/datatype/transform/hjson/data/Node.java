@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.akehurst.datatype.transform.hjson.data;
+
+import net.akehurst.datatype.annotation.Datatype;
+import net.akehurst.datatype.annotation.Identity;
+import net.akehurst.datatype.annotation.Reference;
+
+@Datatype
+public class Node {
+
+    private final String name;
+    private Node child;
+    private Node ref;
+
+    public Node(final String name) {
+        this.name = name;
+    }
+
+    @Identity
+    public String getName() {
+        return this.name;
+    }
+
+    public Node getChild() {
+        return this.child;
+    }
+
+    public void setChild(final Node value) {
+        this.child = value;
+    }
+
+    @Reference
+    public Node getRef() {
+        return this.ref;
+    }
+
+    public void setRef(final Node value) {
+        this.ref = value;
+    }
+
+}
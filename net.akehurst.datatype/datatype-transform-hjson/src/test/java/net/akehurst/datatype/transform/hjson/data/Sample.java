@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2018 Dr. David H. Akehurst (http://dr.david.h.akehurst.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.akehurst.datatype.transform.hjson.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.akehurst.datatype.annotation.Datatype;
+import net.akehurst.datatype.annotation.Identity;
+
+@Datatype
+public class Sample {
+
+    private final long time;
+    private int count;
+    private double value;
+    private float ratio;
+    private Long total;
+    private final List<Number> readings;
+
+    public Sample(final long time) {
+        this.time = time;
+        this.readings = new ArrayList<>();
+    }
+
+    @Identity
+    public long getTime() {
+        return this.time;
+    }
+
+    public int getCount() {
+        return this.count;
+    }
+
+    public void setCount(final int count) {
+        this.count = count;
+    }
+
+    public double getValue() {
+        return this.value;
+    }
+
+    public void setValue(final double value) {
+        this.value = value;
+    }
+
+    public float getRatio() {
+        return this.ratio;
+    }
+
+    public void setRatio(final float ratio) {
+        this.ratio = ratio;
+    }
+
+    public Long getTotal() {
+        return this.total;
+    }
+
+    public void setTotal(final Long total) {
+        this.total = total;
+    }
+
+    public List<Number> getReadings() {
+        return this.readings;
+    }
+
+}
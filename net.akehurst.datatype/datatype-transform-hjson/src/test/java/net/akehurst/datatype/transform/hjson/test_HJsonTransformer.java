@@ -16,8 +16,21 @@
 
 package net.akehurst.datatype.transform.hjson;
 
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.hjson.JsonArray;
 import org.hjson.JsonObject;
@@ -28,9 +41,25 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import net.akehurst.datatype.api.DatatypeException;
+import net.akehurst.datatype.common.CanonicalMap;
+import net.akehurst.datatype.common.model.DatatypeProjection;
+import net.akehurst.datatype.common.monitor.TransformMonitor;
+import net.akehurst.datatype.common.monitor.TransformStatistics;
+import net.akehurst.datatype.transform.hjson.data.Address;
 import net.akehurst.datatype.transform.hjson.data.AddressBook;
 import net.akehurst.datatype.transform.hjson.data.Contact;
+import net.akehurst.datatype.transform.hjson.data.Directory;
+import net.akehurst.datatype.transform.hjson.data.Node;
 import net.akehurst.datatype.transform.hjson.data.Person;
+import net.akehurst.datatype.transform.hjson.data.Sample;
+import net.akehurst.datatype.transform.hjson.rule.Datatype2HJsonObject;
+import net.akehurst.datatype.transform.hjson.rule.Object2JsonValue;
+import net.akehurst.datatype.transform.hjson.rule.String2JsonValue;
 
 public class test_HJsonTransformer {
 
@@ -183,4 +212,471 @@ public class test_HJsonTransformer {
         });
         Assert.assertEquals(p2.get("firstname").asString(), fred.get().getPerson().getInRelationshipWith().getFirstname());
     }
+
+    @Test
+    public void withProjection_toDatatype() {
+
+        final AddressBook book = new AddressBook();
+        final Person p1 = new Person("Fred", "Blogs");
+        p1.getOthernames().add("Jim");
+        final Contact c1 = new Contact("Fred");
+        c1.setPerson(p1);
+        c1.getAddress().put(Instant.ofEpochSecond(1000), new Address(Instant.ofEpochSecond(1000)));
+        book.getContacts().add(c1);
+        final Person p2 = new Person("Jane", "Doe");
+        final Contact c2 = new Contact("Jane");
+        c2.setPerson(p2);
+        book.getContacts().add(c2);
+        p1.setInRelationshipWith(p2);
+
+        final JsonValue hjson = this.sut.toHJson(book, book);
+
+        final AddressBook datatype = new HJsonTransformerDefault().toDatatype(hjson, hjson, DatatypeProjection.of("contacts/*/person/othernames"));
+
+        Assert.assertEquals(2, datatype.getContacts().size());
+        final Contact fred = Seq.seq(datatype.getContacts()).findFirst(c -> Objects.equals("Fred", c.getAlias())).get();
+        Assert.assertEquals(Arrays.asList("Jim"), fred.getPerson().getOthernames());
+        // siblings of the projected member, and members not on the path, are left unset
+        Assert.assertNull(fred.getPerson().getInRelationshipWith());
+        Assert.assertTrue(fred.getAddress().isEmpty());
+    }
+
+    @Test
+    public void lines_toDatatypeStream() {
+
+        final StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 3000; ++i) {
+            final Person p = new Person("Fred", "Blogs" + i);
+            lines.append(new HJsonTransformerDefault().toHJson(p, p).toString()).append("\n");
+        }
+
+        try (Stream<Person> persons = this.sut.toDatatypeStream(new StringReader(lines.toString()))) {
+            final Set<String> lastnames = persons.parallel().map(Person::getLastname).collect(Collectors.toSet());
+            Assert.assertEquals(3000, lastnames.size());
+            Assert.assertTrue(lastnames.contains("Blogs2999"));
+        }
+    }
+
+    @Test
+    public void async_roundTrip() {
+
+        final Person datatype = new Person("Fred", "Blogs");
+        final StringWriter out = new StringWriter();
+
+        final CompletableFuture<Person> result = this.sut.toHJsonAsync(datatype, datatype, out)
+                .thenCompose(v -> this.sut.<Person>toDatatypeAsync(new StringReader(out.toString())));
+
+        Assert.assertEquals("Blogs", result.join().getLastname());
+    }
+
+    @Test
+    public void compositeCycle_toHJson() {
+
+        final Node root = new Node("root");
+        final Node a = new Node("a");
+        root.setChild(a);
+        a.setChild(root); // should have been a reference
+        final Node b = new Node("b");
+        root.setRef(b);
+
+        try {
+            this.sut.toHJson(root, root);
+            Assert.fail("expected DatatypeException");
+        } catch (final DatatypeException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("#/child/child"));
+        }
+    }
+
+    @Test
+    public void twoWay_toHJsonAgainAfterChange() {
+
+        final HJsonTransformerDefault transformer = new HJsonTransformerDefault();
+        transformer.setOneWay(false);
+        final Person p = new Person("Fred", "Blogs");
+        final JsonValue first = transformer.toHJson(p, p);
+        p.getOthernames().add("Jim");
+        final JsonValue second = transformer.toHJson(p, p);
+
+        // correspondence is not kept from one document to the next
+        Assert.assertNotSame(first, second);
+        Assert.assertTrue(second.toString().contains("Jim"));
+    }
+
+    @Test
+    public void compilePath_cached() {
+        final HJsonTransformerDefault transformer = new HJsonTransformerDefault();
+        Assert.assertSame(transformer.compilePath("contacts/0/person"), transformer.compilePath("contacts/0/person"));
+    }
+
+    @Test
+    public void compositeCycleWithoutReference_toHJson() {
+
+        final Node root = new Node("root");
+        final Node a = new Node("a");
+        root.setChild(a);
+        a.setChild(root); // should have been a reference
+
+        for (final boolean oneWay : new boolean[] { true, false }) {
+            final HJsonTransformerDefault transformer = new HJsonTransformerDefault();
+            transformer.setOneWay(oneWay);
+            try {
+                transformer.toHJson(root, root);
+                Assert.fail("expected DatatypeException");
+            } catch (final DatatypeException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().contains("#/child/child"));
+            }
+        }
+    }
+
+    @Test
+    public void memoizeImmutable_toHJson() {
+
+        final Instant starting = Instant.ofEpochSecond(1000);
+        final AddressBook book = new AddressBook();
+        final Contact c1 = new Contact("Fred");
+        c1.getAddress().put(starting, new Address(starting));
+        book.getContacts().add(c1);
+        final Contact c2 = new Contact("Jane");
+        c2.getAddress().put(starting, new Address(starting));
+        book.getContacts().add(c2);
+
+        final HJsonTransformerDefault transformer = new HJsonTransformerDefault();
+        transformer.setMemoizeImmutable(true);
+        final JsonObject hjson = transformer.toHJson(book, book).asObject();
+
+        final JsonArray contacts = hjson.get("contacts").asObject().get("$elements").asArray();
+        final JsonValue a1 = contacts.get(0).asObject().get("address").asObject().get("$elements").asArray().get(0).asObject().get("value");
+        final JsonValue a2 = contacts.get(1).asObject().get("address").asObject().get("$elements").asArray().get(0).asObject().get("value");
+        Assert.assertSame(a1, a2);
+        Assert.assertEquals(Address.class.getName(), a1.asObject().get("$class").asString());
+    }
+
+    @Test
+    public void monitor_statistics() {
+
+        final Instant starting = Instant.ofEpochSecond(1000);
+        final AddressBook book = new AddressBook();
+        final Contact c1 = new Contact("Fred");
+        c1.getAddress().put(starting, new Address(starting));
+        book.getContacts().add(c1);
+        final Contact c2 = new Contact("Jane");
+        c2.getAddress().put(starting, new Address(starting));
+        book.getContacts().add(c2);
+
+        final TransformStatistics stats = new TransformStatistics();
+        final HJsonTransformerDefault transformer = new HJsonTransformerDefault();
+        transformer.setMemoizeImmutable(true);
+        transformer.setMonitor(stats);
+        final JsonValue hjson = transformer.toHJson(book, book);
+        transformer.toDatatype(hjson, hjson);
+
+        Assert.assertEquals(1, stats.getOperations().get("toHJson").getCount());
+        Assert.assertEquals(1, stats.getOperations().get("toDatatype").getCount());
+        Assert.assertEquals(4, stats.getClasses().get(Contact.class).getCount());
+        Assert.assertEquals(0.5, stats.getCacheHitRate("memo"), 0.0);
+    }
+
+    @Test
+    public void monitor_perRuleAndClass() {
+
+        final Contact c1 = new Contact("Fred");
+        c1.setPerson(new Person("Fred", "Blogs"));
+
+        final TransformStatistics stats = new TransformStatistics();
+        final HJsonTransformerDefault transformer = new HJsonTransformerDefault();
+        transformer.setMonitor(stats);
+        final JsonValue hjson = transformer.toHJson(c1, c1);
+
+        // the rules that ran, not the rule class asked for
+        Assert.assertTrue(stats.getRules().containsKey(Datatype2HJsonObject.class));
+        Assert.assertTrue(stats.getRules().containsKey(String2JsonValue.class));
+        Assert.assertFalse(stats.getRules().containsKey(Object2JsonValue.class));
+        Assert.assertEquals(2, stats.getRules().get(Datatype2HJsonObject.class).getCount());
+
+        final long size = hjson.toString().length();
+        Assert.assertEquals(size, stats.getCharsWritten());
+        final Map<Class<?>, Long> byClass = stats.getClassCharsWritten();
+        Assert.assertEquals(hjson.asObject().get("person").toString().length(), byClass.get(Person.class).longValue());
+        Assert.assertEquals(size, byClass.values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    public void monitor_jfr() throws Exception {
+
+        final AddressBook book = new AddressBook();
+        book.getContacts().add(new Contact("Fred"));
+
+        final HJsonTransformerDefault transformer = new HJsonTransformerDefault();
+        transformer.setMonitor(TransformMonitor.jfrIfAvailable());
+        Assert.assertFalse(transformer.getMonitor().isEnabled());
+
+        final Path file = Files.createTempFile("test_HJsonTransformer", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("net.akehurst.datatype.TransformOperation");
+            recording.start();
+            transformer.toHJson(book, book);
+            recording.stop();
+            recording.dump(file);
+        }
+        final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+
+        Assert.assertEquals(1, events.size());
+        Assert.assertEquals("toHJson", events.get(0).getString("operation"));
+        Assert.assertEquals(AddressBook.class.getName(), events.get(0).getClass("rootClass").getName());
+        Assert.assertTrue(events.get(0).getLong("objectCount") > 1);
+    }
+
+    @Test
+    public void canonical_toDatatype() {
+
+        final AddressBook book = new AddressBook();
+        final Contact c1 = new Contact("Fred");
+        c1.setPerson(new Person("Fred", "Blogs"));
+        c1.getPerson().getOthernames().add("Jim");
+        book.getContacts().add(c1);
+        final Contact c2 = new Contact("Freddy");
+        c2.setPerson(new Person("Fred", "Blogs"));
+        c2.getPerson().getOthernames().add("Jim");
+        book.getContacts().add(c2);
+        final JsonValue hjson = this.sut.toHJson(book, book);
+
+        for (final boolean oneWay : new boolean[] { true, false }) {
+            final HJsonTransformerDefault transformer = new HJsonTransformerDefault();
+            transformer.setOneWay(oneWay);
+            final CanonicalMap canonicalMap = new CanonicalMap(CanonicalMap.Strength.STRONG);
+            transformer.setCanonicalMap(canonicalMap);
+            final AddressBook datatype = transformer.toDatatype(hjson, hjson);
+
+            final Person p1 = Seq.seq(datatype.getContacts()).findFirst(c -> Objects.equals("Fred", c.getAlias())).get().getPerson();
+            final Person p2 = Seq.seq(datatype.getContacts()).findFirst(c -> Objects.equals("Freddy", c.getAlias())).get().getPerson();
+            Assert.assertSame(p1, p2);
+            Assert.assertEquals(1, p1.getOthernames().size());
+            Assert.assertTrue(canonicalMap.size() > 0);
+        }
+    }
+
+    @Test
+    public void oneWay_sameAsBidirectional() {
+
+        final AddressBook book = new AddressBook();
+        final Person p1 = new Person("Fred", "Blogs");
+        final Contact c1 = new Contact("Fred");
+        c1.setPerson(p1);
+        book.getContacts().add(c1);
+        final Person p2 = new Person("Jane", "Doe");
+        p1.setInRelationshipWith(p2);
+        final Contact c2 = new Contact("Jane");
+        c2.setPerson(p2);
+        book.getContacts().add(c2);
+
+        final HJsonTransformerDefault oneWay = new HJsonTransformerDefault();
+        oneWay.setOneWay(true);
+        final HJsonTransformerDefault bidirectional = new HJsonTransformerDefault();
+        Assert.assertFalse(bidirectional.isOneWay());
+
+        final JsonValue hjson = oneWay.toHJson(book, book);
+        Assert.assertEquals(bidirectional.toHJson(book, book).toString(), hjson.toString());
+
+        final AddressBook datatype = oneWay.toDatatype(hjson, hjson);
+        final Person d1 = Seq.seq(datatype.getContacts()).findFirst(c -> Objects.equals("Fred", c.getAlias())).get().getPerson();
+        final Person d2 = Seq.seq(datatype.getContacts()).findFirst(c -> Objects.equals("Jane", c.getAlias())).get().getPerson();
+        Assert.assertSame(d2, d1.getInRelationshipWith());
+    }
+
+    @Test
+    public void primitives() {
+
+        final Sample sample = new Sample(1_500_000_000_000L);
+        sample.setCount(3);
+        sample.setValue(2.0);
+        sample.setRatio(0.1f);
+
+        final JsonObject hjson = this.sut.toHJson(sample, sample).asObject();
+        Assert.assertEquals(1_500_000_000_000L, hjson.get("time").asLong());
+        Assert.assertEquals(3, hjson.get("count").asInt());
+
+        final Sample datatype = this.sut.toDatatype(hjson, hjson);
+        Assert.assertEquals(sample.getTime(), datatype.getTime());
+        Assert.assertEquals(3, datatype.getCount());
+        Assert.assertEquals(2.0, datatype.getValue(), 0.0);
+        Assert.assertEquals(0.1f, datatype.getRatio(), 0.0f);
+    }
+
+    @Test
+    public void numbers_toDatatype() {
+
+        final JsonObject readings = new JsonObject();
+        readings.add("$type", "List");
+        readings.add("$elements", new JsonArray().add(1).add(5_000_000_000L).add(2.5));
+        final JsonObject hjson = new JsonObject();
+        hjson.add("$class", Sample.class.getName());
+        hjson.add("time", 5_000_000_000L);
+        hjson.add("value", 2);
+        hjson.add("total", 5_000_000_000L);
+        hjson.add("readings", readings);
+
+        final Sample datatype = this.sut.toDatatype(hjson, hjson);
+
+        Assert.assertEquals(5_000_000_000L, datatype.getTime());
+        Assert.assertEquals(2.0, datatype.getValue(), 0.0);
+        Assert.assertEquals(Long.valueOf(5_000_000_000L), datatype.getTotal());
+        Assert.assertEquals(Arrays.asList(1, 5_000_000_000L, 2.5), datatype.getReadings());
+    }
+
+    @Test
+    public void numbers_outOfRange_toDatatype() {
+
+        final String[][] members = { { "count", "5000000000" }, { "total", "1e20" }, { "ratio", "1e39" } };
+        for (final String[] member : members) {
+            final JsonObject hjson = new JsonObject();
+            hjson.add("$class", Sample.class.getName());
+            hjson.add("time", 1);
+            hjson.add(member[0], Double.parseDouble(member[1]));
+            try {
+                this.sut.toDatatype(hjson, hjson);
+                Assert.fail("expected DatatypeException for " + member[0]);
+            } catch (final DatatypeException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().contains("property " + member[0]));
+            }
+        }
+    }
+
+    @Test
+    public void compactMaps() {
+
+        final Directory directory = new Directory();
+        final Person fred = new Person("Fred", "Blogs");
+        directory.getByName().put("fred", fred);
+        final Contact jane = new Contact("Jane");
+        final Person janeDoe = new Person("Jane", "Doe");
+        directory.getByContact().put(jane, janeDoe);
+
+        final HJsonTransformerDefault transformer = new HJsonTransformerDefault();
+        transformer.setCompactMaps(true);
+
+        directory.setOwner(fred);
+        JsonObject hjson = transformer.toHJson(directory, directory).asObject();
+        Assert.assertEquals("Fred", hjson.get("byName").asObject().get("fred").asObject().getString("firstname", null));
+        Assert.assertEquals("Jane", hjson.get("byContact").asObject().get("$keys").asArray().get(0).asObject().getString("alias", null));
+        Assert.assertEquals("#/byName/fred", hjson.get("owner").asObject().getString("$ref", null));
+        Directory datatype = transformer.toDatatype(hjson, hjson);
+        Assert.assertSame(datatype.getByName().get("fred"), datatype.getOwner());
+
+        directory.setOwner(janeDoe);
+        hjson = transformer.toHJson(directory, directory).asObject();
+        Assert.assertEquals("#/byContact/0", hjson.get("owner").asObject().getString("$ref", null));
+        datatype = transformer.toDatatype(hjson, hjson);
+        Assert.assertEquals("Jane", datatype.getByContact().keySet().iterator().next().getAlias());
+        Assert.assertSame(datatype.getByContact().values().iterator().next(), datatype.getOwner());
+    }
+
+    @Test
+    public void instants() {
+
+        final Instant precise = Instant.ofEpochSecond(1000, 123_456_789);
+        final Contact contact = new Contact("Fred");
+        contact.getAddress().put(precise, new Address(precise));
+
+        // tagged form, as the map key is not declared
+        final JsonValue tagged = this.sut.toHJson(contact, contact);
+        final Contact c = this.sut.toDatatype(tagged, tagged);
+        Assert.assertEquals(precise, c.getAddress().keySet().iterator().next());
+        Assert.assertEquals(precise, c.getAddress().values().iterator().next().getStarting());
+
+        final HJsonTransformerDefault transformer = new HJsonTransformerDefault();
+        transformer.setCompactTypedValues(true);
+        final Address whole = new Address(Instant.ofEpochSecond(1000));
+        JsonObject hjson = transformer.toHJson(whole, whole).asObject();
+        Assert.assertEquals(1000, hjson.get("starting").asLong());
+        Assert.assertEquals(whole.getStarting(), transformer.<Address> toDatatype(hjson, hjson).getStarting());
+
+        final Address part = new Address(precise);
+        hjson = transformer.toHJson(part, part).asObject();
+        Assert.assertEquals(123_456_789, hjson.get("starting").asArray().get(1).asInt());
+        Assert.assertEquals(precise, transformer.<Address> toDatatype(hjson, hjson).getStarting());
+    }
+
+    @Test
+    public void classDictionary() {
+
+        final AddressBook book = new AddressBook();
+        final Contact c1 = new Contact("Fred");
+        c1.setPerson(new Person("Fred", "Blogs"));
+        book.getContacts().add(c1);
+        final Contact c2 = new Contact("Jane");
+        c2.setPerson(new Person("Jane", "Doe"));
+        c1.getPerson().setInRelationshipWith(c2.getPerson());
+        book.getContacts().add(c2);
+
+        final HJsonTransformerDefault transformer = new HJsonTransformerDefault();
+        transformer.setClassDictionary(true);
+        final JsonObject hjson = transformer.toHJson(book, book).asObject();
+
+        final JsonArray types = hjson.get("$types").asArray();
+        Assert.assertEquals(3, types.size());
+        Assert.assertEquals(AddressBook.class.getName(), types.get(hjson.get("$class").asInt()).asString());
+        final JsonObject contact = hjson.get("contacts").asObject().get("$elements").asArray().get(0).asObject();
+        Assert.assertEquals(Contact.class.getName(), types.get(contact.get("$class").asInt()).asString());
+
+        final AddressBook datatype = new HJsonTransformerDefault().toDatatype(hjson, hjson);
+        final Person fred = Seq.seq(datatype.getContacts()).findFirst(c -> Objects.equals("Fred", c.getAlias())).get().getPerson();
+        final Person jane = Seq.seq(datatype.getContacts()).findFirst(c -> Objects.equals("Jane", c.getAlias())).get().getPerson();
+        Assert.assertSame(jane, fred.getInRelationshipWith());
+    }
+
+    @Test
+    public void classDictionary_typesFirst() {
+
+        final AddressBook book = new AddressBook();
+        final Contact c1 = new Contact("Fred");
+        c1.setPerson(new Person("Fred", "Blogs"));
+        book.getContacts().add(c1);
+
+        final List<String> names = new ArrayList<>(new HJsonTransformerDefault().toHJson(book, book).asObject().names());
+        names.add(0, "$types");
+
+        final HJsonTransformerDefault transformer = new HJsonTransformerDefault();
+        transformer.setClassDictionary(true);
+        Assert.assertEquals(names, transformer.toHJson(book, book).asObject().names());
+    }
+
+    @Test
+    public void classDictionary_perDocument() {
+
+        final AddressBook book = new AddressBook();
+        final Contact c1 = new Contact("Fred");
+        c1.setPerson(new Person("Fred", "Blogs"));
+        book.getContacts().add(c1);
+        final Person p = new Person("Jane", "Doe");
+
+        for (final boolean oneWay : new boolean[] { true, false }) {
+            final HJsonTransformerDefault transformer = new HJsonTransformerDefault();
+            transformer.setOneWay(oneWay);
+            transformer.setClassDictionary(true);
+            Assert.assertEquals(3, transformer.toHJson(book, book).asObject().get("$types").asArray().size());
+
+            final JsonObject hjson = transformer.toHJson(p, p).asObject();
+            Assert.assertEquals(1, hjson.get("$types").asArray().size());
+            Assert.assertEquals(0, hjson.get("$class").asInt());
+        }
+    }
+
+    @Test
+    public void unresolvedReference_roundTrip() {
+
+        final AddressBook book = new AddressBook();
+        final Contact jane = new Contact("Jane");
+        jane.setPerson(new Person("Jane", "Doe"));
+        // Fred is not in the book, so the reference cannot be written as a path
+        jane.getPerson().setInRelationshipWith(new Person("Fred", "Blogs"));
+        book.getContacts().add(jane);
+
+        final JsonValue hjson = this.sut.toHJson(book, book);
+        final AddressBook datatype = new HJsonTransformerDefault().toDatatype(hjson, hjson);
+
+        final Person p = datatype.getContacts().iterator().next().getPerson();
+        Assert.assertEquals("Jane", p.getFirstname());
+        Assert.assertNull(p.getInRelationshipWith());
+    }
 }
@@ -73,6 +73,7 @@ public class Datatype2ClassMetadata implements BinaryRule<DatatypeClass, ClassMe
         }
     }
 
+    // not DatatypeWalker, as the hjson rules now use: this module is not built (see _build.gradle) and predates datatype-common's model package
     private List<String> createPath(final Object from, final Object to) {
         if (null == from) {
             return null;